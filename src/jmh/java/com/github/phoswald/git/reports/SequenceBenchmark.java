@@ -0,0 +1,56 @@
+package com.github.phoswald.git.reports;
+
+import static com.github.phoswald.git.reports.Sequence.sequence;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SequenceBenchmark {
+
+    @Param({ "100", "20000" })
+    private int authorCount;
+
+    private Sequence sequence;
+
+    @Setup
+    public void setup() {
+        // commit counts per author roughly following a power law, like in real repositories
+        Random random = new Random(42);
+        Map<String, Long> counts = new HashMap<>();
+        for (int i = 0; i < authorCount; i++) {
+            counts.put("author" + i + "@example.com", (long) (1 / (1 - random.nextDouble() * 0.999)));
+        }
+        sequence = sequence(null, counts);
+    }
+
+    @Benchmark
+    public Sequence topSamples() {
+        return sequence.topSamples(10);
+    }
+
+    @Benchmark
+    public Set<String> topValues() {
+        return sequence.topValues(10);
+    }
+}
@@ -0,0 +1,131 @@
+package com.github.phoswald.git.stats;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class GitStatsBenchmark {
+
+    private static final Path repoPath = Paths.get("src/test/resources/it/guava.git");
+    private static final String commitHash = "822125f9ee7a71c830f1383e9e5a8663414d8f48";
+    private static final String releaseTag = "v31.1";
+    private static final Path smallFile = Paths.get("guava/src/com/google/common/annotations/Beta.java");
+    private static final Path largeFile = Paths.get("guava/src/com/google/common/collect/Maps.java");
+
+    // shared instance with populated history index, line count and blame cache
+    @State(Scope.Benchmark)
+    public static class Session {
+        Path outputPath;
+        GitStats testee;
+        HistoryStatistics history;
+
+        @Setup(Level.Trial)
+        public void open() throws IOException {
+            outputPath = Files.createTempDirectory("git-stats-benchmark");
+            testee = new GitStats(repoPath, outputPath);
+            history = testee.calculateHistoryStatistics(releaseTag, new HistoryOptionsBuilder().build());
+            testee.calculateCommitStatistics(commitHash);
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws IOException {
+            testee.close();
+            delete(outputPath);
+        }
+    }
+
+    // new instance for every invocation, without history index, line count and blame cache
+    @State(Scope.Thread)
+    public static class FreshSession {
+        Path outputPath;
+        GitStats testee;
+
+        @Setup(Level.Invocation)
+        public void open() throws IOException {
+            outputPath = Files.createTempDirectory("git-stats-benchmark");
+            testee = new GitStats(repoPath, outputPath);
+        }
+
+        @TearDown(Level.Invocation)
+        public void close() throws IOException {
+            testee.close();
+            delete(outputPath);
+        }
+    }
+
+    @Benchmark
+    public HistoryStatistics calculateHistoryStatistics_fullWalk(FreshSession session) throws IOException {
+        return session.testee.calculateHistoryStatistics(releaseTag, new HistoryOptionsBuilder().build());
+    }
+
+    @Benchmark
+    public HistoryStatistics calculateHistoryStatistics_indexed(Session session) throws IOException {
+        return session.testee.calculateHistoryStatistics(releaseTag, new HistoryOptionsBuilder().build());
+    }
+
+    @Benchmark
+    public HistoryStatistics calculateHistoryStatistics_indexedWithCommits(Session session) throws IOException {
+        return session.testee.calculateHistoryStatistics(releaseTag);
+    }
+
+    @Benchmark
+    public CommitStatistics calculateCommitStatistics_treeWalk(Session session) throws IOException {
+        return session.testee.calculateCommitStatistics(commitHash); // line counts are cached
+    }
+
+    @Benchmark
+    public CommitStatistics calculateCommitStatistics_treeWalkAndLineCount(FreshSession session) throws IOException {
+        return session.testee.calculateCommitStatistics(commitHash);
+    }
+
+    @Benchmark
+    public BlameStatistics calculateBlameStatistics_smallFile(FreshSession session) throws IOException {
+        return session.testee.calculateBlameStatistics(commitHash, smallFile);
+    }
+
+    @Benchmark
+    public BlameStatistics calculateBlameStatistics_largeFile(FreshSession session) throws IOException {
+        return session.testee.calculateBlameStatistics(commitHash, largeFile);
+    }
+
+    @Benchmark
+    public BlameStatistics calculateBlameStatistics_largeFileCached(Session session) throws IOException {
+        return session.testee.calculateBlameStatistics(commitHash, largeFile); // lines are cached
+    }
+
+    @Benchmark
+    public List<Path> generateHistoryReport(Session session) throws IOException {
+        return session.testee.generateHistoryReport(session.history);
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
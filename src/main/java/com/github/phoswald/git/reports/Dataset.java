@@ -2,10 +2,14 @@ package com.github.phoswald.git.reports;
 
 import static com.github.phoswald.git.reports.Sequence.sequence;
 import static java.util.Comparator.comparing;
+import static java.util.Comparator.reverseOrder;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 
 public record Dataset(String label, List<Sequence> sequences) {
@@ -15,11 +19,44 @@ public record Dataset(String label, List<Sequence> sequences) {
     }
 
     public static Dataset dataset(String label, Map<String, Map<String, Long>> map, Set<String> filter) {
-        // TODO: add sequence() for others (not part of filter), required refactoring
         return new Dataset(label, map.entrySet().stream() //
                 .filter(e -> filter.contains(e.getKey())) //
                 .map(e -> sequence(e.getKey(), e.getValue())) //
                 .sorted(comparing(Sequence::label)) //
                 .toList());
     }
+
+    /**
+     * Selects the {@code count} entries with the largest totals as sequences and merges all other entries into one
+     * additional sequence, in one pass with a bounded heap.
+     */
+    public static Dataset dataset(String label, Map<String, Map<String, Long>> map, int count) {
+        // smallest total first, equal totals by descending key, so the head is always the next one to evict
+        var heap = new PriorityQueue<Ranked>(comparing(Ranked::total).thenComparing(Ranked::key, reverseOrder()));
+        var others = new HashMap<String, Long>();
+        for (var entry : map.entrySet()) {
+            long total = 0;
+            for (long value : entry.getValue().values()) {
+                total += value;
+            }
+            heap.add(new Ranked(entry.getKey(), total, entry.getValue()));
+            if (heap.size() > count) {
+                heap.poll().counts().forEach((k, v) -> others.merge(k, v, Long::sum));
+            }
+        }
+        var sequences = new ArrayList<Sequence>(heap.size() + 1);
+        heap.forEach(ranked -> sequences.add(sequence(ranked.key(), ranked.counts())));
+        sequences.sort(comparing(Sequence::label));
+        if (count < map.size()) {
+            sequences.add(sequence("others (" + (map.size() - count) + ")", others));
+        }
+        return new Dataset(label, sequences);
+    }
+
+    public Dataset downsample(int maxSamples) {
+        return new Dataset(label, sequences.stream().map(sequence -> sequence.downsample(maxSamples)).toList());
+    }
+
+    private record Ranked(String key, long total, Map<String, Long> counts) {
+    }
 }
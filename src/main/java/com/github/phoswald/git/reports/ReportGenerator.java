@@ -2,41 +2,192 @@ package com.github.phoswald.git.reports;
 
 import static com.github.phoswald.git.reports.Dataset.dataset;
 import static com.github.phoswald.git.reports.Sequence.sequence;
-import static java.util.stream.Collectors.counting;
-import static java.util.stream.Collectors.groupingBy;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
-import com.github.phoswald.git.stats.CommitInfo;
+import com.github.phoswald.git.stats.CommitTable;
+import com.github.phoswald.git.stats.CommitTable.Dimension;
+import com.github.phoswald.git.stats.CommitTable.Measure;
+import com.github.phoswald.git.stats.CouplingStatistics;
+import com.github.phoswald.git.stats.FileCoupling;
+import com.github.phoswald.git.stats.HistoryStatistics;
+import com.github.phoswald.git.stats.User;
 import com.github.phoswald.git.stats.charts.ChartGenerator;
+import com.github.phoswald.git.stats.metrics.MetricsListener;
+import com.github.phoswald.git.stats.metrics.MetricsSnapshot;
+import com.github.phoswald.git.stats.metrics.Phase;
+
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.json.bind.JsonbConfig;
 
 public class ReportGenerator {
 
+    private static final Jsonb json = JsonbBuilder.create(new JsonbConfig().withFormatting(true));
+
+    public static final int DEFAULT_MAX_SAMPLES = 1000;
+
+    private final Path targetDir;
+    private final MetricsListener metrics;
+    private final int maxSamples;
     private final ChartGenerator charts;
 
     public ReportGenerator(Path targetDir) {
-        this.charts = new ChartGenerator(targetDir);
+        this(targetDir, MetricsListener.NONE);
+    }
+
+    public ReportGenerator(Path targetDir, MetricsListener metrics) {
+        this(targetDir, metrics, DEFAULT_MAX_SAMPLES);
+    }
+
+    public ReportGenerator(Path targetDir, MetricsListener metrics, int maxSamples) {
+        this.targetDir = targetDir;
+        this.metrics = metrics;
+        this.maxSamples = maxSamples;
+        this.charts = new ChartGenerator(targetDir, metrics);
     }
 
-    public List<Path> generateHistoryReport(List<CommitInfo> commits) throws IOException {
-        var countByName = commits.stream().collect(groupingBy(c -> c.author().name(), counting()));
-        var countByEmail = commits.stream().collect(groupingBy(c -> c.author().email(), counting()));
-        var countByYear = commits.stream().collect(groupingBy(c -> c.year(), counting()));
-        var countByMonth = commits.stream().collect(groupingBy(c -> c.month(), counting()));
-        var countByEmailYear = commits.stream().collect(groupingBy(c -> c.author().email(), groupingBy(c -> c.year(), counting())));
-        var countByEmailMonth = commits.stream().collect(groupingBy(c -> c.author().email(), groupingBy(c -> c.month(), counting())));
+    public List<Path> generateHistoryReport(HistoryStatistics stats) throws IOException {
+        try (Phase phase = Phase.start(metrics, "generateHistoryReport")) {
+            List<Path> files = historyReport(stats);
+            phase.count("charts", files.size());
+            return files;
+        }
+    }
+
+    public Path generateCompactHistoryReport(HistoryStatistics stats) throws IOException {
+        try (Phase phase = Phase.start(metrics, "generateCompactHistoryReport")) {
+            HistorySeries series = historySeries(stats);
+            return charts.newPage("History") //
+                    .addPieChart("Commits by Author (Name)", series.byName()) //
+                    .addBarChart("Commits by Author (Email)", series.byEmail()) //
+                    .addLineChart("Commits by Year", series.byYear()) //
+                    .addLineChart("Commits by Month", series.byMonth()) //
+                    .addLinesChart("Commits by Year for Author (Email)", series.byEmailAndYear()) //
+                    .addLinesChart("Commits by Month for Author (Email)", series.byEmailAndMonth()) //
+                    .generate();
+        }
+    }
+
+    /**
+     * Like {@link #generateCompactHistoryReport(HistoryStatistics)}, with additional breakdowns by weekday, hour (UTC)
+     * and type of the commit message.
+     */
+    public Path generateCompactHistoryReport(CommitTable table) throws IOException {
+        try (Phase phase = Phase.start(metrics, "generateCompactHistoryReport")) {
+            HistorySeries series = historySeries(table);
+            var countByWeekday = table.aggregate(Measure.COMMITS, Dimension.WEEKDAY);
+            var countByHour = table.aggregate(Measure.COMMITS, Dimension.HOUR);
+            var countByType = table.aggregate(Measure.COMMITS, Dimension.TYPE);
+            return charts.newPage("History") //
+                    .addPieChart("Commits by Author (Name)", series.byName()) //
+                    .addBarChart("Commits by Author (Email)", series.byEmail()) //
+                    .addLineChart("Commits by Year", series.byYear()) //
+                    .addLineChart("Commits by Month", series.byMonth()) //
+                    .addLinesChart("Commits by Year for Author (Email)", series.byEmailAndYear()) //
+                    .addLinesChart("Commits by Month for Author (Email)", series.byEmailAndMonth()) //
+                    .addBarChart("Commits by Weekday", sequence(null, countByWeekday)) //
+                    .addBarChart("Commits by Hour", sequence(null, countByHour)) //
+                    .addPieChart("Commits by Type", sequence(null, countByType).topSamples(10)) //
+                    .generate();
+        }
+    }
+
+    /**
+     * Generates a heatmap of the files that are most often changed together with others, symmetric by construction.
+     */
+    public Path generateCouplingReport(CouplingStatistics stats) throws IOException {
+        var countByFile = new HashMap<String, Long>();
+        for (FileCoupling pair : stats.pairs()) {
+            countByFile.merge(pair.file1(), (long) pair.commitCount(), Long::sum);
+            countByFile.merge(pair.file2(), (long) pair.commitCount(), Long::sum);
+        }
+        var files = sequence(null, countByFile).topValues(30);
+        var countByPair = new HashMap<String, Map<String, Long>>();
+        for (FileCoupling pair : stats.pairs()) {
+            if (files.contains(pair.file1()) && files.contains(pair.file2())) {
+                long count = pair.commitCount();
+                countByPair.computeIfAbsent(pair.file1(), k -> new HashMap<>()).put(pair.file2(), count);
+                countByPair.computeIfAbsent(pair.file2(), k -> new HashMap<>()).put(pair.file1(), count);
+            }
+        }
+        return charts.generateHeatmapChart("Files Changed Together", dataset(null, countByPair, files));
+    }
 
-        var topEmails = sequence(null, countByEmail).topValues(10);
+    public Path generateMetricsReport(MetricsSnapshot snapshot) throws IOException {
+        Files.createDirectories(targetDir);
+        Path filePath = targetDir.resolve("metrics.json");
+        Files.writeString(filePath, json.toJson(snapshot));
+        return filePath;
+    }
 
+    private List<Path> historyReport(HistoryStatistics stats) throws IOException {
+        HistorySeries series = historySeries(stats);
         return Arrays.asList( //
-                charts.generatePieChart("Commits by Author (Name)", sequence(null, countByName).topSamples(10)), //
-                charts.generateBarChart("Commits by Author (Email)", sequence(null, countByEmail).topSamples(20)), //
-                charts.generateLineChart("Commits by Year", sequence(null, countByYear)), //
-                charts.generateLineChart("Commits by Month", sequence(null, countByMonth)), //
-                charts.generateLinesChart("Commits by Year for Author (Email)", dataset(null, countByEmailYear, topEmails)), //
-                charts.generateLinesChart("Commits by Month for Author (Email)", dataset(null, countByEmailMonth, topEmails)));
+                charts.generatePieChart("Commits by Author (Name)", series.byName()), //
+                charts.generateBarChart("Commits by Author (Email)", series.byEmail()), //
+                charts.generateLineChart("Commits by Year", series.byYear()), //
+                charts.generateLineChart("Commits by Month", series.byMonth()), //
+                charts.generateLinesChart("Commits by Year for Author (Email)", series.byEmailAndYear()), //
+                charts.generateLinesChart("Commits by Month for Author (Email)", series.byEmailAndMonth()));
+    }
+
+    private HistorySeries historySeries(HistoryStatistics stats) {
+        var countByName = countBy(stats.commitCountByAuthor(), User::name);
+        var countByEmail = countBy(stats.commitCountByAuthor(), User::email);
+        var countByYear = countBy(stats.commitCountByYear(), Object::toString);
+        var countByMonth = countBy(stats.commitCountByMonth(), Object::toString);
+        var countByEmailYear = countByEmail(stats.commitCountByAuthorAndYear());
+        var countByEmailMonth = countByEmail(stats.commitCountByAuthorAndMonth());
+
+        return historySeries(countByName, countByEmail, countByYear, countByMonth, countByEmailYear,
+                countByEmailMonth);
+    }
+
+    private HistorySeries historySeries(CommitTable table) {
+        return historySeries( //
+                table.aggregate(Measure.COMMITS, Dimension.AUTHOR_NAME), //
+                table.aggregate(Measure.COMMITS, Dimension.AUTHOR_EMAIL), //
+                table.aggregate(Measure.COMMITS, Dimension.YEAR), //
+                table.aggregate(Measure.COMMITS, Dimension.MONTH), //
+                table.aggregate(Measure.COMMITS, Dimension.AUTHOR_EMAIL, Dimension.YEAR), //
+                table.aggregate(Measure.COMMITS, Dimension.AUTHOR_EMAIL, Dimension.MONTH));
+    }
+
+    private HistorySeries historySeries(Map<String, Long> countByName, Map<String, Long> countByEmail,
+            Map<String, Long> countByYear, Map<String, Long> countByMonth,
+            Map<String, Map<String, Long>> countByEmailYear, Map<String, Map<String, Long>> countByEmailMonth) {
+        return new HistorySeries( //
+                sequence(null, countByName).topSamples(10), //
+                sequence(null, countByEmail).topSamples(20), //
+                sequence(null, countByYear).downsample(maxSamples), //
+                sequence(null, countByMonth).downsample(maxSamples), //
+                dataset(null, countByEmailYear, 10).downsample(maxSamples), //
+                dataset(null, countByEmailMonth, 10).downsample(maxSamples));
+    }
+
+    private static <K> Map<String, Long> countBy(Map<K, Long> counts, Function<? super K, String> key) {
+        var result = new HashMap<String, Long>();
+        counts.forEach((k, v) -> result.merge(key.apply(k), v, Long::sum));
+        return result;
+    }
+
+    private static <K> Map<String, Map<String, Long>> countByEmail(Map<User, ? extends Map<K, Long>> counts) {
+        var result = new HashMap<String, Map<String, Long>>();
+        counts.forEach((user, nested) -> nested.forEach((k, v) -> result //
+                .computeIfAbsent(user.email(), e -> new HashMap<>()) //
+                .merge(k.toString(), v, Long::sum)));
+        return result;
+    }
+
+    private record HistorySeries(Sequence byName, Sequence byEmail, Sequence byYear, Sequence byMonth,
+            Dataset byEmailAndYear, Dataset byEmailAndMonth) {
     }
 }
@@ -2,17 +2,22 @@ package com.github.phoswald.git.reports;
 
 import static com.github.phoswald.git.reports.Sample.sample;
 import static java.util.Comparator.comparing;
-import static java.util.stream.Collectors.summingDouble;
 import static java.util.stream.Collectors.toSet;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 
 public record Sequence(String label, List<Sample> samples) {
 
+    // largest values first, equal values by label (like a stable sort of samples sorted by label)
+    private static final Comparator<Sample> ranking = comparing(Sample::value).reversed().thenComparing(Sample::label);
+
     public static Sequence sequence(String label, Sample... samples) {
         return new Sequence(label, Arrays.asList(samples));
     }
@@ -25,22 +30,83 @@ public record Sequence(String label, List<Sample> samples) {
     }
 
     public Sequence topSamples(int count) {
-        var sorted = new ArrayList<Sample>(samples);
-        sorted.sort(comparing(Sample::value).reversed());
-        if (count < sorted.size()) {
-            var selection = new ArrayList<Sample>();
-            double remaining = sorted.stream().skip(count).collect(summingDouble(Sample::value));
-            selection.addAll(sorted.subList(0, count));
-            selection.add(sample("others (" + (sorted.size() - count) + ")", remaining));
-            return new Sequence(label, selection);
-        } else {
-            return new Sequence(label, sorted);
+        var heap = new PriorityQueue<Sample>(ranking.reversed());
+        double remaining = 0;
+        for (Sample sample : samples) {
+            heap.add(sample);
+            if (heap.size() > count) {
+                remaining += heap.poll().value();
+            }
+        }
+        var selection = drain(heap);
+        if (count < samples.size()) {
+            selection.add(sample("others (" + (samples.size() - count) + ")", remaining));
         }
+        return new Sequence(label, selection);
     }
 
     public Set<String> topValues(int count) {
-        var sorted = new ArrayList<Sample>(samples);
-        sorted.sort(comparing(Sample::value).reversed());
-        return sorted.stream().map(Sample::label).limit(count).collect(toSet());
+        var heap = new PriorityQueue<Sample>(ranking.reversed());
+        for (Sample sample : samples) {
+            heap.add(sample);
+            if (heap.size() > count) {
+                heap.poll();
+            }
+        }
+        return heap.stream().map(Sample::label).collect(toSet());
+    }
+
+    private static List<Sample> drain(PriorityQueue<Sample> heap) {
+        var result = new ArrayList<Sample>(heap.size() + 1);
+        while (!heap.isEmpty()) {
+            result.add(heap.poll());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Reduces the samples to at most {@code maxSamples} with largest-triangle-three-buckets (LTTB), in one pass.
+     * The first and last sample are kept, from every bucket in between the sample that spans the largest triangle
+     * with the previously selected sample and the average of the next bucket. The samples are placed by their index.
+     */
+    public Sequence downsample(int maxSamples) {
+        int size = samples.size();
+        if (size <= maxSamples || maxSamples < 3) {
+            return this;
+        }
+        var selection = new ArrayList<Sample>(maxSamples);
+        double bucketSize = (double) (size - 2) / (maxSamples - 2);
+        int previous = 0;
+        selection.add(samples.get(previous));
+        for (int bucket = 0; bucket < maxSamples - 2; bucket++) {
+            int start = (int) (bucket * bucketSize) + 1;
+            int end = bucket < maxSamples - 3 ? (int) ((bucket + 1) * bucketSize) + 1 : size - 1;
+            int nextEnd = Math.min((int) ((bucket + 2) * bucketSize) + 1, size);
+            double averageX = 0;
+            double averageY = 0;
+            for (int i = end; i < nextEnd; i++) {
+                averageX += i;
+                averageY += samples.get(i).value();
+            }
+            averageX /= nextEnd - end;
+            averageY /= nextEnd - end;
+
+            double previousY = samples.get(previous).value();
+            double maxArea = -1;
+            int selected = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((previous - averageX) * (samples.get(i).value() - previousY)
+                        - (previous - i) * (averageY - previousY));
+                if (area > maxArea) {
+                    maxArea = area;
+                    selected = i;
+                }
+            }
+            selection.add(samples.get(selected));
+            previous = selected;
+        }
+        selection.add(samples.get(size - 1));
+        return new Sequence(label, selection);
     }
 }
@@ -0,0 +1,124 @@
+package com.github.phoswald.git.stats;
+
+import static java.util.Comparator.comparing;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.phoswald.git.reports.ReportGenerator;
+
+/**
+ * Runs history, commit and (optionally) blame statistics for many repositories in one JVM, on a bounded pool of
+ * threads. Every job gets its own {@link GitStats} and report directory, failures are captured per job.
+ */
+public class BatchAnalyzer {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final Path outputPath;
+    private final int parallelism;
+    private final boolean blame;
+
+    public BatchAnalyzer(Path outputPath, int parallelism, boolean blame) {
+        this.outputPath = outputPath;
+        this.parallelism = parallelism;
+        this.blame = blame;
+    }
+
+    public BatchStatistics analyze(List<BatchJob> jobs) throws IOException {
+        List<BatchResult> results = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, jobs.size())));
+        try {
+            List<Future<BatchResult>> futures = new ArrayList<>();
+            for (BatchJob job : jobs) {
+                futures.add(executor.submit(() -> analyze(job)));
+            }
+            for (Future<BatchResult> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while analyzing batch");
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause()); // analyze(job) captures all exceptions
+        } finally {
+            executor.shutdownNow();
+        }
+
+        HistoryStatistics history = mergeHistoryStatistics(results.stream() //
+                .filter(result -> result.failure() == null) //
+                .map(BatchResult::history) //
+                .toList());
+        return new BatchStatisticsBuilder() //
+                .results(results) //
+                .history(history) //
+                .reports(new ReportGenerator(outputPath).generateHistoryReport(history)) //
+                .build();
+    }
+
+    private BatchResult analyze(BatchJob job) {
+        BatchResultBuilder result = new BatchResultBuilder().job(job);
+        int innerParallelism = Math.max(1, Runtime.getRuntime().availableProcessors() / parallelism);
+        try (GitStats stats = new GitStats(job.repoPath(), outputPath.resolve(job.name()), innerParallelism)) {
+            HistoryStatistics history = stats.calculateHistoryStatistics(job.revision(), new HistoryOptionsBuilder().build());
+            result.history(history);
+            result.commit(stats.calculateCommitStatistics(job.revision()));
+            if (blame) {
+                result.blame(stats.calculateBlameStatistics(job.revision(), file -> { }));
+            }
+            result.reports(stats.generateHistoryReport(history));
+        } catch (Exception e) {
+            logger.warn("Failed to analyze {} ({} at {})", job.name(), job.repoPath(), job.revision(), e);
+            result.failure(e);
+        }
+        return result.build();
+    }
+
+    private static HistoryStatistics mergeHistoryStatistics(List<HistoryStatistics> list) {
+        SortedMap<User, Long> byAuthor = new TreeMap<>(comparing(User::toString));
+        SortedMap<User, SortedMap<Year, Long>> byAuthorAndYear = new TreeMap<>(comparing(User::toString));
+        SortedMap<User, SortedMap<YearMonth, Long>> byAuthorAndMonth = new TreeMap<>(comparing(User::toString));
+        HistoryStatisticsBuilder builder = new HistoryStatisticsBuilder() //
+                .commitCount(list.stream().mapToInt(HistoryStatistics::commitCount).sum()) //
+                .commitCountByAuthor(byAuthor) //
+                .commitCountByDate(merge(list, HistoryStatistics::commitCountByDate)) //
+                .commitCountByYear(merge(list, HistoryStatistics::commitCountByYear)) //
+                .commitCountByMonth(merge(list, HistoryStatistics::commitCountByMonth)) //
+                .commitCountByAuthorAndYear(byAuthorAndYear) //
+                .commitCountByAuthorAndMonth(byAuthorAndMonth);
+        for (HistoryStatistics stats : list) {
+            mergeInto(byAuthor, stats.commitCountByAuthor());
+            stats.commitCountByAuthorAndYear() //
+                    .forEach((k, v) -> mergeInto(byAuthorAndYear.computeIfAbsent(k, x -> new TreeMap<>()), v));
+            stats.commitCountByAuthorAndMonth() //
+                    .forEach((k, v) -> mergeInto(byAuthorAndMonth.computeIfAbsent(k, x -> new TreeMap<>()), v));
+        }
+        return builder.authorCountByMonth(HistoryAggregator.authorCountByMonth(byAuthorAndMonth)).build();
+    }
+
+    private static <K> SortedMap<K, Long> merge(List<HistoryStatistics> list,
+            Function<HistoryStatistics, SortedMap<K, Long>> getter) {
+        SortedMap<K, Long> result = new TreeMap<>();
+        list.forEach(stats -> mergeInto(result, getter.apply(stats)));
+        return result;
+    }
+
+    private static <K> void mergeInto(Map<K, Long> target, Map<K, Long> source) {
+        source.forEach((k, v) -> target.merge(k, v, Long::sum));
+    }
+}
@@ -0,0 +1,13 @@
+package com.github.phoswald.git.stats;
+
+import java.nio.file.Path;
+
+import com.github.phoswald.record.builder.RecordBuilder;
+
+@RecordBuilder
+public record BatchJob( //
+        String name, // used as report directory, must be unique within a batch
+        Path repoPath, //
+        String revision //
+) {
+}
@@ -0,0 +1,17 @@
+package com.github.phoswald.git.stats;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import com.github.phoswald.record.builder.RecordBuilder;
+
+@RecordBuilder
+public record BatchResult( //
+        BatchJob job, //
+        HistoryStatistics history, //
+        CommitStatistics commit, //
+        BlameStatistics blame, // null unless enabled
+        List<Path> reports, //
+        Exception failure // null if successful, the statistics that were calculated before are kept
+) {
+}
@@ -0,0 +1,14 @@
+package com.github.phoswald.git.stats;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import com.github.phoswald.record.builder.RecordBuilder;
+
+@RecordBuilder
+public record BatchStatistics( //
+        List<BatchResult> results, //
+        HistoryStatistics history, // merged over all successful jobs
+        List<Path> reports //
+) {
+}
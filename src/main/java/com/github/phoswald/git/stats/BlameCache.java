@@ -0,0 +1,200 @@
+package com.github.phoswald.git.stats;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jgit.blame.BlameGenerator;
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.DiffAlgorithm.SupportedAlgorithm;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+
+/**
+ * Blames files and remembers the source commit of every line, keyed by path, together with the blamed commit and blob.
+ * <p>
+ * If a path is blamed again at a descendant of the remembered commit, and the commits in between form a chain without
+ * merges that keeps the file, the chain is replayed instead: every change of the blob is diffed (like the blame does)
+ * and the changed lines are attributed to the commit changing them, the source commits of the other lines are carried
+ * forward. In all other cases (other branches, earlier revisions, merges, renames) the file is blamed from scratch.
+ * <p>
+ * The remembered files are evicted in LRU order, bounded by their total number of lines. Evicted files are blamed
+ * from scratch again.
+ */
+class BlameCache {
+
+    static final long DEFAULT_MAX_LINES = 1_000_000;
+
+    private final Repository repo;
+    private final long maxLines;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long lines;
+    private long blameCount;
+
+    BlameCache(Repository repo) {
+        this(repo, DEFAULT_MAX_LINES);
+    }
+
+    BlameCache(Repository repo, long maxLines) {
+        this.repo = repo;
+        this.maxLines = maxLines;
+    }
+
+    RevCommit[] blame(ObjectId revision, String path) throws IOException {
+        try (ObjectReader reader = repo.newObjectReader(); //
+                RevWalk walk = new RevWalk(reader)) {
+            RevCommit commit = walk.parseCommit(revision);
+            ObjectId blobId = findBlob(reader, commit, path);
+            if (blobId == null) {
+                throw new FileNotFoundException("File not found: " + path);
+            }
+            Entry previous = get(path);
+            ObjectId[] lineCommits = null;
+            if (previous != null && previous.commitId().equals(commit)) {
+                lineCommits = previous.lineCommits();
+            } else if (previous != null) {
+                lineCommits = replay(reader, commit, path, previous);
+            }
+            if (lineCommits == null) {
+                lineCommits = blame(commit, path);
+            }
+            put(path, new Entry(commit.copy(), blobId, lineCommits));
+
+            RevCommit[] result = new RevCommit[lineCommits.length];
+            for (int line = 0; line < lineCommits.length; line++) {
+                result[line] = walk.parseCommit(lineCommits[line]);
+            }
+            return result;
+        }
+    }
+
+    // number of files blamed from scratch
+    synchronized long blameCount() {
+        return blameCount;
+    }
+
+    private synchronized Entry get(String path) {
+        return entries.get(path);
+    }
+
+    private synchronized void put(String path, Entry entry) {
+        Entry previous = entries.put(path, entry);
+        if (previous != null) {
+            lines -= previous.lineCommits().length;
+        }
+        lines += entry.lineCommits().length;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (lines > maxLines && iterator.hasNext()) {
+            lines -= iterator.next().lineCommits().length;
+            iterator.remove();
+        }
+    }
+
+    private ObjectId[] blame(RevCommit commit, String path) throws IOException {
+        synchronized (this) {
+            blameCount++;
+        }
+        try (BlameGenerator generator = new BlameGenerator(repo, path)) {
+            ObjectId[] lineCommits = new ObjectId[generator.push(null, commit).getResultContents().size()];
+            Map<RevCommit, ObjectId> sources = new HashMap<>();
+            while (generator.next()) {
+                ObjectId source = sources.computeIfAbsent(generator.getSourceCommit(), RevCommit::copy);
+                for (int line = generator.getResultStart(); line < generator.getResultEnd(); line++) {
+                    lineCommits[line] = source;
+                }
+            }
+            return lineCommits;
+        }
+    }
+
+    // null if the remembered commit is not an ancestor or the commits in between are not a chain keeping the file
+    private ObjectId[] replay(ObjectReader reader, ObjectId commitId, String path, Entry previous)
+            throws IOException {
+        List<RevCommit> chain = new ArrayList<>();
+        try (RevWalk walk = new RevWalk(reader)) {
+            RevCommit commit = walk.parseCommit(commitId);
+            RevCommit previousCommit = walk.parseCommit(previous.commitId());
+            if (!walk.isMergedInto(previousCommit, commit)) {
+                return null;
+            }
+            walk.reset();
+            walk.markStart(commit);
+            walk.markUninteresting(previousCommit);
+            for (RevCommit between : walk) {
+                if (between.getParentCount() != 1) {
+                    return null;
+                }
+                chain.add(between);
+            }
+        }
+        Collections.reverse(chain); // oldest first
+
+        ObjectId blobId = previous.blobId();
+        ObjectId[] lineCommits = previous.lineCommits();
+        for (RevCommit between : chain) {
+            ObjectId nextBlobId = findBlob(reader, between, path);
+            if (nextBlobId == null) {
+                return null; // deleted or renamed, the blame would follow the rename
+            }
+            if (!nextBlobId.equals(blobId)) {
+                int[] previousLines = diff(reader, blobId, nextBlobId);
+                ObjectId source = between.copy();
+                ObjectId[] nextLineCommits = new ObjectId[previousLines.length];
+                for (int line = 0; line < previousLines.length; line++) {
+                    nextLineCommits[line] = previousLines[line] < 0 ? source : lineCommits[previousLines[line]];
+                }
+                blobId = nextBlobId;
+                lineCommits = nextLineCommits;
+            }
+        }
+        return lineCommits;
+    }
+
+    private static ObjectId findBlob(ObjectReader reader, RevCommit commit, String path) throws IOException {
+        try (TreeWalk treeWalk = TreeWalk.forPath(reader, path, commit.getTree())) {
+            return treeWalk != null ? treeWalk.getObjectId(0) : null;
+        }
+    }
+
+    // maps the lines of the new blob to their line in the old blob, -1 for changed lines (as the blame diffs them)
+    private static int[] diff(ObjectReader reader, ObjectId oldBlobId, ObjectId newBlobId) throws IOException {
+        RawText oldContents = new RawText(reader.open(oldBlobId, Constants.OBJ_BLOB).getCachedBytes(Integer.MAX_VALUE));
+        RawText newContents = new RawText(reader.open(newBlobId, Constants.OBJ_BLOB).getCachedBytes(Integer.MAX_VALUE));
+        EditList edits = DiffAlgorithm.getAlgorithm(SupportedAlgorithm.HISTOGRAM) //
+                .diff(RawTextComparator.DEFAULT, oldContents, newContents);
+        int[] previousLines = new int[newContents.size()];
+        int previousLine = 0;
+        int line = 0;
+        for (Edit edit : edits) {
+            while (line < edit.getBeginB()) {
+                previousLines[line++] = previousLine++;
+            }
+            while (line < edit.getEndB()) {
+                previousLines[line++] = -1;
+            }
+            previousLine = edit.getEndA();
+        }
+        while (line < previousLines.length) {
+            previousLines[line++] = previousLine++;
+        }
+        return previousLines;
+    }
+
+    private record Entry(ObjectId commitId, ObjectId blobId, ObjectId[] lineCommits) {
+    }
+}
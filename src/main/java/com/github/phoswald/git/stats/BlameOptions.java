@@ -0,0 +1,12 @@
+package com.github.phoswald.git.stats;
+
+import com.github.phoswald.record.builder.RecordBuilder;
+
+@RecordBuilder
+public record BlameOptions( //
+        boolean streaming, // attribute lines region by region, without remembering them for the next revision
+        Integer maxLines, // streaming only: larger files are skipped and reported with zero lines, null means no limit
+        Integer sampleSize, // all files only: blame about this many files and estimate the rest, null means all
+        long seed // of the random sample, the same seed selects the same files of a tree
+) {
+}
@@ -0,0 +1,143 @@
+package com.github.phoswald.git.stats;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Stratified random sample of the files of a tree, and the estimation of the line counts of the whole tree from the
+ * blame of the sampled files.
+ * <p>
+ * Files are stratified by the power of two of their line count, the sample size of each stratum is proportional to
+ * its lines (at least two files). Within a stratum, line counts are estimated with a ratio estimator: the total lines
+ * of the stratum are known, the share of an author (or date) is taken from the sampled files. Error bounds are the
+ * half-width of the 95% confidence interval.
+ */
+class BlameSample {
+
+    private final Map<String, Stratum> strataByFile = new HashMap<>();
+    private final List<Stratum> strata = new ArrayList<>();
+    private final List<String> files = new ArrayList<>();
+    private final long lineCount;
+
+    BlameSample(List<String> paths, int[] lineCounts, int sampleSize, long seed) {
+        SortedMap<Integer, List<Integer>> indexesByStratum = new TreeMap<>();
+        long totalLines = 0;
+        for (int i = 0; i < paths.size(); i++) {
+            if (lineCounts[i] > 0) { // nothing to attribute in empty and binary files
+                indexesByStratum.computeIfAbsent(31 - Integer.numberOfLeadingZeros(lineCounts[i]), //
+                        k -> new ArrayList<>()).add(i);
+                totalLines += lineCounts[i];
+            }
+        }
+        lineCount = totalLines;
+
+        Random random = new Random(seed);
+        for (List<Integer> indexes : indexesByStratum.values()) {
+            long stratumLines = indexes.stream().mapToLong(i -> lineCounts[i]).sum();
+            int size = (int) Math.round((double) sampleSize * stratumLines / totalLines);
+            size = Math.min(indexes.size(), Math.max(2, size));
+            Stratum stratum = new Stratum(indexes.size(), size, stratumLines);
+            strata.add(stratum);
+            for (int i = 0; i < size; i++) { // partial Fisher-Yates shuffle
+                int j = i + random.nextInt(indexes.size() - i);
+                Integer selected = indexes.set(j, indexes.get(i));
+                indexes.set(i, selected);
+                strataByFile.put(paths.get(selected), stratum);
+                files.add(paths.get(selected));
+            }
+        }
+    }
+
+    List<String> files() {
+        return files;
+    }
+
+    long lineCount() {
+        return lineCount;
+    }
+
+    void add(BlameStatistics fileStats) {
+        Stratum stratum = strataByFile.get(fileStats.file());
+        long lines = fileStats.lineCount();
+        if (lines == 0) { // skipped (too large), the stratum is estimated from the other sampled files
+            stratum.sampleSize--;
+            return;
+        }
+        stratum.lines += lines;
+        stratum.linesSquared += (double) lines * lines;
+        fileStats.lineCountByAuthor().forEach((user, count) -> stratum.byAuthor.computeIfAbsent(user, //
+                k -> new Sums()).add(count, lines));
+        fileStats.lineCountByDate().forEach((date, count) -> stratum.byDate.computeIfAbsent(date, //
+                k -> new Sums()).add(count, lines));
+    }
+
+    SortedMap<User, Long> estimateByAuthor(SortedMap<User, Long> errors) {
+        return estimate(stratum -> stratum.byAuthor, errors);
+    }
+
+    SortedMap<LocalDate, Long> estimateByDate(SortedMap<LocalDate, Long> errors) {
+        return estimate(stratum -> stratum.byDate, errors);
+    }
+
+    // returns the estimates and fills the errors into the given map
+    private <K> SortedMap<K, Long> estimate(Function<Stratum, Map<K, Sums>> sums, SortedMap<K, Long> errors) {
+        Map<K, double[]> totals = new HashMap<>(); // estimate, variance
+        for (Stratum stratum : strata) {
+            if (stratum.lines == 0) {
+                continue;
+            }
+            // N^2 * (1 - n/N) / n / (n - 1), zero if all files of the stratum are sampled
+            double n = stratum.sampleSize;
+            double correction = stratum.fileCount * (stratum.fileCount - n) / n / Math.max(1, n - 1);
+            sums.apply(stratum).forEach((key, sum) -> {
+                double ratio = sum.values / stratum.lines;
+                double residuals = sum.squares - 2 * ratio * sum.products + ratio * ratio * stratum.linesSquared;
+                double[] total = totals.computeIfAbsent(key, k -> new double[2]);
+                total[0] += ratio * stratum.totalLines;
+                total[1] += correction * Math.max(0, residuals);
+            });
+        }
+        SortedMap<K, Long> estimates = new TreeMap<>(errors.comparator());
+        totals.forEach((key, total) -> {
+            estimates.put(key, Math.round(total[0]));
+            errors.put(key, Math.round(1.96 * Math.sqrt(total[1])));
+        });
+        return estimates;
+    }
+
+    private static class Stratum {
+        private final int fileCount;
+        private int sampleSize; // of the sampled files that were blamed
+        private final long totalLines;
+        private final Map<User, Sums> byAuthor = new HashMap<>();
+        private final Map<LocalDate, Sums> byDate = new HashMap<>();
+        private double lines; // of the sampled files
+        private double linesSquared;
+
+        Stratum(int fileCount, int sampleSize, long totalLines) {
+            this.fileCount = fileCount;
+            this.sampleSize = sampleSize;
+            this.totalLines = totalLines;
+        }
+    }
+
+    // sums of y, y^2 and y*l over the sampled files, for the lines y attributed to a key in a file with l lines
+    private static class Sums {
+        private double values;
+        private double squares;
+        private double products;
+
+        void add(long value, long lines) {
+            values += value;
+            squares += (double) value * value;
+            products += (double) value * lines;
+        }
+    }
+}
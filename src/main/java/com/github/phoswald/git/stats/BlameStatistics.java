@@ -12,6 +12,8 @@ public record BlameStatistics( //
         String file, //
         int lineCount, //
         SortedMap<User, Long> lineCountByAuthor, //
-        SortedMap<LocalDate, Long> lineCountByDate //
+        SortedMap<LocalDate, Long> lineCountByDate, //
+        SortedMap<User, Long> lineCountErrorByAuthor, // null unless sampled: half-width of the 95% confidence interval
+        SortedMap<LocalDate, Long> lineCountErrorByDate // null unless sampled
 ) {
 }
@@ -0,0 +1,19 @@
+package com.github.phoswald.git.stats;
+
+import com.github.phoswald.record.builder.RecordBuilder;
+
+/**
+ * Statistics of JGit's window cache, which is shared by all repositories of the JVM.
+ */
+@RecordBuilder
+public record CacheStatistics( //
+        long hitCount, //
+        long missCount, //
+        double hitRatio, //
+        long loadCount, //
+        long evictionCount, //
+        double averageLoadTime, // nanoseconds
+        long openFileCount, //
+        long openByteCount //
+) {
+}
@@ -0,0 +1,239 @@
+package com.github.phoswald.git.stats;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bloom filters of the paths changed by every commit of a {@link HistoryIndex}, by position, persisted as a binary
+ * file.
+ * <p>
+ * Like the changed-path filters of git's commit-graph, a filter contains the changed files and their parent
+ * directories compared to the first parent, with 10 bits per path and 7 hash functions. Commits changing more than
+ * 512 paths get a filter that matches everything, merge commits an empty one. Layout: magic, version, commit count,
+ * id of the last commit (to detect a replaced history index), filter lengths and filters.
+ */
+class ChangedPathIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangedPathIndex.class);
+    private static final int MAGIC = 0x47534350; // "GSCP"
+    private static final int VERSION = 1;
+    private static final int BITS_PER_PATH = 10;
+    private static final int HASH_COUNT = 7;
+    private static final int MAX_CHANGED_PATHS = 512;
+    private static final byte[] EMPTY = new byte[0];
+    private static final byte[] ALL = { (byte) 0xFF };
+
+    private byte[][] filters = new byte[0][];
+    private int size;
+
+    static ChangedPathIndex load(Path file, HistoryIndex history) throws IOException {
+        ChangedPathIndex index = new ChangedPathIndex();
+        if (!Files.exists(file)) {
+            return index;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                logger.warn("Ignoring changed path index with unknown format: {}", file);
+                return index;
+            }
+            int commitCount = buffer.getInt();
+            if (commitCount > 0) {
+                byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+                buffer.get(raw);
+                if (commitCount > history.size() || !history.id(commitCount - 1).equals(ObjectId.fromRaw(raw))) {
+                    logger.warn("Ignoring changed path index of another history index: {}", file);
+                    return index;
+                }
+            }
+            index.filters = new byte[commitCount][];
+            for (int i = 0; i < commitCount; i++) {
+                index.filters[i] = new byte[buffer.getShort() & 0xFFFF];
+            }
+            for (int i = 0; i < commitCount; i++) {
+                buffer.get(index.filters[i]);
+            }
+            index.size = commitCount;
+            return index;
+        } catch (BufferUnderflowException e) {
+            logger.warn("Ignoring truncated changed path index: {}", file);
+            return new ChangedPathIndex();
+        }
+    }
+
+    void save(Path file, HistoryIndex history) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(size);
+            if (size > 0) {
+                byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+                history.id(size - 1).copyRawTo(raw, 0);
+                out.write(raw);
+            }
+            for (int i = 0; i < size; i++) {
+                out.writeShort(filters[i].length);
+            }
+            for (int i = 0; i < size; i++) {
+                out.write(filters[i]);
+            }
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    int size() {
+        return size;
+    }
+
+    // computes the filters of all commits that were added to the history index since the last update
+    int update(Repository repo, HistoryIndex history, int parallelism) throws IOException {
+        int from = size;
+        int to = history.size();
+        if (from == to) {
+            return 0;
+        }
+        filters = Arrays.copyOf(filters, to);
+        int workers = Math.min(parallelism, to - from);
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int worker = 0; worker < workers; worker++) {
+                int chunkFrom = from + worker * (to - from) / workers;
+                int chunkTo = from + (worker + 1) * (to - from) / workers;
+                futures.add(executor.submit(() -> {
+                    computeFilters(repo, history, chunkFrom, chunkTo);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while indexing changed paths");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ioe ? ioe : new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        size = to;
+        return to - from;
+    }
+
+    // false if the commit certainly did not change the path (a file or directory), true if it might have
+    boolean mightChange(int position, String path) {
+        byte[] filter = filters[position];
+        if (filter.length == 0) {
+            return false;
+        }
+        long hash = hash(path);
+        int bits = filter.length * 8;
+        for (int i = 0; i < HASH_COUNT; i++) {
+            int bit = bit(hash, i, bits);
+            if ((filter[bit >>> 3] & (1 << (bit & 7))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void computeFilters(Repository repo, HistoryIndex history, int from, int to) throws IOException {
+        try (ObjectReader reader = repo.newObjectReader(); //
+                RevWalk walk = new RevWalk(reader)) {
+            for (int position = from; position < to; position++) {
+                filters[position] = computeFilter(reader, walk.parseCommit(history.id(position)), walk);
+            }
+        }
+    }
+
+    private static byte[] computeFilter(ObjectReader reader, RevCommit commit, RevWalk walk) throws IOException {
+        if (commit.getParentCount() > 1) {
+            return EMPTY;
+        }
+        Set<String> paths = new HashSet<>();
+        try (TreeWalk treeWalk = new TreeWalk(reader)) {
+            if (commit.getParentCount() == 0) {
+                treeWalk.addTree(new EmptyTreeIterator());
+            } else {
+                treeWalk.addTree(walk.parseCommit(commit.getParent(0)).getTree());
+            }
+            treeWalk.addTree(commit.getTree());
+            treeWalk.setRecursive(true);
+            treeWalk.setFilter(TreeFilter.ANY_DIFF);
+            while (treeWalk.next()) {
+                String path = treeWalk.getPathString();
+                while (paths.add(path)) {
+                    int index = path.lastIndexOf('/');
+                    if (index < 0) {
+                        break;
+                    }
+                    path = path.substring(0, index);
+                }
+                if (paths.size() > MAX_CHANGED_PATHS) {
+                    return ALL;
+                }
+            }
+        }
+        if (paths.isEmpty()) {
+            return EMPTY;
+        }
+        byte[] filter = new byte[(paths.size() * BITS_PER_PATH + 7) / 8];
+        int bits = filter.length * 8;
+        for (String path : paths) {
+            long hash = hash(path);
+            for (int i = 0; i < HASH_COUNT; i++) {
+                int bit = bit(hash, i, bits);
+                filter[bit >>> 3] |= (byte) (1 << (bit & 7));
+            }
+        }
+        return filter;
+    }
+
+    // double hashing with the two halves of a 64 bit FNV-1a hash of the UTF-8 path
+    private static int bit(long hash, int i, int bits) {
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        return Integer.remainderUnsigned(hash1 + i * hash2, bits);
+    }
+
+    private static long hash(String path) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : path.getBytes(UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,8 @@
+package com.github.phoswald.git.stats;
+
+public record Churn(long linesAdded, long linesRemoved) {
+
+    public Churn plus(Churn other) {
+        return new Churn(linesAdded + other.linesAdded, linesRemoved + other.linesRemoved);
+    }
+}
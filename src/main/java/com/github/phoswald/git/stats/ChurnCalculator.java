@@ -0,0 +1,111 @@
+package com.github.phoswald.git.stats;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
+
+import com.github.phoswald.git.stats.metrics.Phase;
+
+/**
+ * Counts lines added and removed by every non-merge commit, compared to its parent, with renames detected.
+ * <p>
+ * The calling thread walks the commits and passes the results on, a pool of workers diffs the trees. At most a few
+ * commits per worker are in flight, so the walk cannot run ahead of the diffs. Files whose content is unchanged
+ * (renamed or copied without modification, mode changes) are not diffed.
+ */
+class ChurnCalculator {
+
+    private final Repository repo;
+    private final int parallelism;
+
+    ChurnCalculator(Repository repo, int parallelism) {
+        this.repo = repo;
+        this.parallelism = parallelism;
+    }
+
+    void calculate(RevWalk walk, RevCommit tip, Consumer<CommitChurn> consumer, Phase phase) throws IOException {
+        int maxInFlight = parallelism * 4;
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            CompletionService<Diff> completion = new ExecutorCompletionService<>(executor);
+            int inFlight = 0;
+            walk.markStart(tip);
+            for (RevCommit commit : walk) {
+                if (commit.getParentCount() > 1) {
+                    continue;
+                }
+                if (inFlight == maxInFlight) {
+                    accept(completion.take().get(), consumer, phase);
+                    inFlight--;
+                }
+                CommitInfo info = GitStats.createCommitInfo(commit);
+                ObjectId oldTree = commit.getParentCount() == 0 ? null : walk.parseCommit(commit.getParent(0)).getTree();
+                ObjectId newTree = commit.getTree();
+                completion.submit(() -> diff(info, oldTree, newTree));
+                inFlight++;
+            }
+            while (inFlight > 0) {
+                accept(completion.take().get(), consumer, phase);
+                inFlight--;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while diffing");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ioe ? ioe : new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void accept(Diff diff, Consumer<CommitChurn> consumer, Phase phase) {
+        phase.count("commits", 1).count("filesDiffed", diff.filesDiffed()).count("filesUnchanged", diff.filesUnchanged());
+        consumer.accept(diff.churn());
+    }
+
+    private Diff diff(CommitInfo commit, ObjectId oldTree, ObjectId newTree) throws IOException {
+        int linesAdded = 0;
+        int linesRemoved = 0;
+        int filesDiffed = 0;
+        int filesUnchanged = 0;
+        try (ObjectReader reader = repo.newObjectReader(); //
+                DiffFormatter formatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
+            formatter.setReader(reader, repo.getConfig());
+            formatter.setDetectRenames(true);
+            for (DiffEntry entry : formatter.scan(oldTree, newTree)) {
+                if (entry.getOldId().equals(entry.getNewId())) {
+                    filesUnchanged++;
+                    continue;
+                }
+                for (Edit edit : formatter.toFileHeader(entry).toEditList()) {
+                    linesAdded += edit.getLengthB();
+                    linesRemoved += edit.getLengthA();
+                }
+                filesDiffed++;
+            }
+        }
+        return new Diff(new CommitChurnBuilder() //
+                .commit(commit) //
+                .linesAdded(linesAdded) //
+                .linesRemoved(linesRemoved) //
+                .build(), filesDiffed, filesUnchanged);
+    }
+
+    private record Diff(CommitChurn churn, int filesDiffed, int filesUnchanged) {
+    }
+}
@@ -0,0 +1,20 @@
+package com.github.phoswald.git.stats;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.SortedMap;
+
+import com.github.phoswald.record.builder.RecordBuilder;
+
+@RecordBuilder
+public record ChurnStatistics( //
+        String repo, //
+        String revision, //
+        int commitCount, // merge commits are neither diffed nor counted
+        long linesAdded, //
+        long linesRemoved, //
+        SortedMap<User, Churn> churnByAuthor, //
+        SortedMap<YearMonth, Churn> churnByMonth, //
+        List<CommitChurn> commits //
+) {
+}
@@ -0,0 +1,11 @@
+package com.github.phoswald.git.stats;
+
+import com.github.phoswald.record.builder.RecordBuilder;
+
+@RecordBuilder
+public record CommitChurn( //
+        CommitInfo commit, //
+        int linesAdded, //
+        int linesRemoved //
+) {
+}
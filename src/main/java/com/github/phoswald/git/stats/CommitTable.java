@@ -0,0 +1,325 @@
+package com.github.phoswald.git.stats;
+
+import java.time.DayOfWeek;
+import java.time.YearMonth;
+import java.time.format.TextStyle;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Commits stored as primitive columns: author ids, commit times (epoch seconds, UTC), months and dictionary encoded
+ * message types, plus lines added and removed if built from churn statistics.
+ * <p>
+ * Queries group by any combination of {@link Dimension}s: the group key of every commit is computed column by column
+ * as a mixed radix number, then all values are accumulated in one pass. Groups whose value is zero are omitted.
+ */
+public final class CommitTable {
+
+    private static final Pattern typePattern = Pattern.compile("^([A-Za-z]+)(\\([^)]*\\))?!?:");
+    private static final int MAX_DENSE_GROUPS = 1 << 20;
+
+    public enum Dimension {
+        AUTHOR_NAME, AUTHOR_EMAIL, YEAR, MONTH, WEEKDAY, HOUR, TYPE
+    }
+
+    public enum Measure {
+        COMMITS, LINES_ADDED, LINES_REMOVED
+    }
+
+    private final int size;
+    private final int[] authors;
+    private final long[] times;
+    private final int[] months; // year * 12 + month - 1
+    private final int[] types;
+    private final int[] linesAdded; // null unless built from churn statistics
+    private final int[] linesRemoved;
+    private final String[] typeLabels;
+    private final Dictionary names;
+    private final Dictionary emails;
+    private final int minMonth;
+    private final int maxMonth;
+
+    private CommitTable(Appender appender) {
+        size = appender.size;
+        authors = Arrays.copyOf(appender.authors, size);
+        times = Arrays.copyOf(appender.times, size);
+        types = Arrays.copyOf(appender.types, size);
+        linesAdded = appender.churn ? Arrays.copyOf(appender.linesAdded, size) : null;
+        linesRemoved = appender.churn ? Arrays.copyOf(appender.linesRemoved, size) : null;
+        typeLabels = appender.typeIds.keySet().toArray(String[]::new);
+        User[] users = new User[appender.users.size()];
+        Arrays.setAll(users, appender.users::user);
+        names = new Dictionary(users, true);
+        emails = new Dictionary(users, false);
+        months = new int[size];
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int row = 0; row < size; row++) {
+            months[row] = HistoryAggregator.epochMonth((int) Math.floorDiv(times[row], 86400));
+            min = Math.min(min, months[row]);
+            max = Math.max(max, months[row]);
+        }
+        minMonth = size > 0 ? min : 0;
+        maxMonth = size > 0 ? max : 0;
+    }
+
+    public static CommitTable of(List<CommitInfo> commits) {
+        Appender appender = new Appender(new UserDictionary(), false);
+        for (CommitInfo commit : commits) {
+            appender.add(appender.users.id(commit.author()), commit.timestamp().getEpochSecond(), commit.message(), 0,
+                    0);
+        }
+        return new CommitTable(appender);
+    }
+
+    public static CommitTable ofChurn(List<CommitChurn> commits) {
+        Appender appender = new Appender(new UserDictionary(), true);
+        for (CommitChurn commit : commits) {
+            appender.add(appender.users.id(commit.commit().author()), commit.commit().timestamp().getEpochSecond(),
+                    commit.commit().message(), commit.linesAdded(), commit.linesRemoved());
+        }
+        return new CommitTable(appender);
+    }
+
+    static CommitTable of(HistoryIndex index, BitSet positions) {
+        Appender appender = new Appender(index.users(), false);
+        for (int position = positions.nextSetBit(0); position >= 0; position = positions.nextSetBit(position + 1)) {
+            appender.add(index.author(position), index.commitTime(position), index.message(position), 0, 0);
+        }
+        return new CommitTable(appender);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Map<String, Long> aggregate(Measure measure, Dimension dimension) {
+        Map<String, Long> result = new HashMap<>();
+        String[] labels = labels(dimension);
+        aggregate(measure, new Dimension[] { dimension }, (codes, value) -> result.put(labels[codes[0]], value));
+        return result;
+    }
+
+    public Map<String, Map<String, Long>> aggregate(Measure measure, Dimension outer, Dimension inner) {
+        Map<String, Map<String, Long>> result = new HashMap<>();
+        String[] outerLabels = labels(outer);
+        String[] innerLabels = labels(inner);
+        aggregate(measure, new Dimension[] { outer, inner }, (codes, value) -> result //
+                .computeIfAbsent(outerLabels[codes[0]], k -> new HashMap<>()) //
+                .put(innerLabels[codes[1]], value));
+        return result;
+    }
+
+    public Map<List<String>, Long> groupBy(Measure measure, Dimension... dimensions) {
+        Map<List<String>, Long> result = new LinkedHashMap<>();
+        String[][] labels = new String[dimensions.length][];
+        for (int i = 0; i < dimensions.length; i++) {
+            labels[i] = labels(dimensions[i]);
+        }
+        aggregate(measure, dimensions, (codes, value) -> {
+            String[] key = new String[codes.length];
+            for (int i = 0; i < codes.length; i++) {
+                key[i] = labels[i][codes[i]];
+            }
+            result.put(List.of(key), value);
+        });
+        return result;
+    }
+
+    private void aggregate(Measure measure, Dimension[] dimensions, GroupConsumer consumer) {
+        int[] values = switch (measure) {
+            case COMMITS -> null;
+            case LINES_ADDED -> linesAdded;
+            case LINES_REMOVED -> linesRemoved;
+        };
+        if (measure != Measure.COMMITS && values == null) {
+            throw new IllegalStateException("Measure not available: " + measure);
+        }
+
+        // group keys, one column at a time
+        int[] keys = new int[size];
+        int[] cardinalities = new int[dimensions.length];
+        long groupCount = 1;
+        for (int i = 0; i < dimensions.length; i++) {
+            cardinalities[i] = labels(dimensions[i]).length;
+            groupCount *= Math.max(1, cardinalities[i]);
+            if (groupCount > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Too many groups: " + Arrays.toString(dimensions));
+            }
+            addCodes(dimensions[i], cardinalities[i], keys);
+        }
+
+        int[] codes = new int[dimensions.length];
+        if (groupCount <= MAX_DENSE_GROUPS) {
+            long[] sums = new long[(int) groupCount];
+            for (int row = 0; row < size; row++) {
+                sums[keys[row]] += values == null ? 1 : values[row];
+            }
+            for (int key = 0; key < sums.length; key++) {
+                if (sums[key] != 0) {
+                    consumer.accept(decode(key, cardinalities, codes), sums[key]);
+                }
+            }
+        } else {
+            IntCounter sums = new IntCounter();
+            for (int row = 0; row < size; row++) {
+                sums.add(keys[row], values == null ? 1 : values[row]);
+            }
+            sums.forEach((key, sum) -> consumer.accept(decode(key, cardinalities, codes), sum));
+        }
+    }
+
+    private void addCodes(Dimension dimension, int cardinality, int[] keys) {
+        switch (dimension) {
+            case AUTHOR_NAME -> {
+                for (int row = 0; row < size; row++) {
+                    keys[row] = keys[row] * cardinality + names.codes[authors[row]];
+                }
+            }
+            case AUTHOR_EMAIL -> {
+                for (int row = 0; row < size; row++) {
+                    keys[row] = keys[row] * cardinality + emails.codes[authors[row]];
+                }
+            }
+            case YEAR -> {
+                int minYear = Math.floorDiv(minMonth, 12);
+                for (int row = 0; row < size; row++) {
+                    keys[row] = keys[row] * cardinality + Math.floorDiv(months[row], 12) - minYear;
+                }
+            }
+            case MONTH -> {
+                for (int row = 0; row < size; row++) {
+                    keys[row] = keys[row] * cardinality + months[row] - minMonth;
+                }
+            }
+            case WEEKDAY -> {
+                for (int row = 0; row < size; row++) {
+                    // 1970-01-01 was a Thursday, code 0 is Monday
+                    keys[row] = keys[row] * cardinality + Math.floorMod(Math.floorDiv(times[row], 86400) + 3, 7);
+                }
+            }
+            case HOUR -> {
+                for (int row = 0; row < size; row++) {
+                    keys[row] = keys[row] * cardinality + Math.floorMod(times[row], 86400) / 3600;
+                }
+            }
+            case TYPE -> {
+                for (int row = 0; row < size; row++) {
+                    keys[row] = keys[row] * cardinality + types[row];
+                }
+            }
+        }
+    }
+
+    private String[] labels(Dimension dimension) {
+        return switch (dimension) {
+            case AUTHOR_NAME -> names.labels;
+            case AUTHOR_EMAIL -> emails.labels;
+            case YEAR -> {
+                int minYear = Math.floorDiv(minMonth, 12);
+                String[] labels = new String[Math.floorDiv(maxMonth, 12) - minYear + 1];
+                Arrays.setAll(labels, code -> Integer.toString(minYear + code));
+                yield labels;
+            }
+            case MONTH -> {
+                String[] labels = new String[maxMonth - minMonth + 1];
+                Arrays.setAll(labels, code -> YearMonth
+                        .of(Math.floorDiv(minMonth + code, 12), Math.floorMod(minMonth + code, 12) + 1).toString());
+                yield labels;
+            }
+            case WEEKDAY -> {
+                // numbered, so the labels sort like the days
+                String[] labels = new String[7];
+                Arrays.setAll(labels, code -> (code + 1) + "-"
+                        + DayOfWeek.of(code + 1).getDisplayName(TextStyle.SHORT, Locale.ENGLISH));
+                yield labels;
+            }
+            case HOUR -> {
+                String[] labels = new String[24];
+                Arrays.setAll(labels, code -> String.format("%02d", code));
+                yield labels;
+            }
+            case TYPE -> typeLabels;
+        };
+    }
+
+    private static int[] decode(int key, int[] cardinalities, int[] codes) {
+        for (int i = codes.length - 1; i >= 0; i--) {
+            codes[i] = key % cardinalities[i];
+            key /= cardinalities[i];
+        }
+        return codes;
+    }
+
+    // conventional commit type ("fix(parser): ..." is "fix"), "other" for all other messages
+    private static String type(String message) {
+        Matcher matcher = typePattern.matcher(message);
+        return matcher.find() ? matcher.group(1).toLowerCase(Locale.ROOT) : "other";
+    }
+
+    private interface GroupConsumer {
+        void accept(int[] codes, long value);
+    }
+
+    // sorted distinct names or emails, with the code of every user id
+    private static class Dictionary {
+
+        private final String[] labels;
+        private final int[] codes;
+
+        Dictionary(User[] users, boolean byName) {
+            TreeSet<String> distinct = new TreeSet<>();
+            for (User user : users) {
+                distinct.add(byName ? user.name() : user.email());
+            }
+            labels = distinct.toArray(String[]::new);
+            codes = new int[users.length];
+            for (int i = 0; i < users.length; i++) {
+                codes[i] = Arrays.binarySearch(labels, byName ? users[i].name() : users[i].email());
+            }
+        }
+    }
+
+    private static class Appender {
+
+        private final UserDictionary users;
+        private final boolean churn;
+        private final Map<String, Integer> typeIds = new LinkedHashMap<>();
+        private int size;
+        private int[] authors = new int[16];
+        private long[] times = new long[16];
+        private int[] types = new int[16];
+        private int[] linesAdded = new int[16];
+        private int[] linesRemoved = new int[16];
+
+        Appender(UserDictionary users, boolean churn) {
+            this.users = users;
+            this.churn = churn;
+        }
+
+        void add(int author, long time, String message, int added, int removed) {
+            if (size == authors.length) {
+                int capacity = size * 2;
+                authors = Arrays.copyOf(authors, capacity);
+                times = Arrays.copyOf(times, capacity);
+                types = Arrays.copyOf(types, capacity);
+                linesAdded = Arrays.copyOf(linesAdded, capacity);
+                linesRemoved = Arrays.copyOf(linesRemoved, capacity);
+            }
+            authors[size] = author;
+            times[size] = time;
+            types[size] = typeIds.computeIfAbsent(type(message), k -> typeIds.size());
+            linesAdded[size] = added;
+            linesRemoved[size] = removed;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.github.phoswald.git.stats;
+
+import static java.util.Comparator.comparing;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import com.github.phoswald.git.stats.metrics.Phase;
+
+/**
+ * Counts how often pairs of files are changed together by non-merge commits, compared to their parent.
+ * <p>
+ * The calling thread walks the commits, the trees are compared by a pool of workers. Every worker has its own
+ * counters, keyed by file ids (a pair of ids is packed into one long). The counters are merged at the end and only the
+ * top pairs are materialized. Commits changing too many files are skipped, they would add a quadratic number of pairs.
+ */
+class CouplingCalculator {
+
+    // most often changed together first, equal counts by paths
+    private static final Comparator<FileCoupling> ranking = comparing(FileCoupling::commitCount).reversed() //
+            .thenComparing(FileCoupling::file1) //
+            .thenComparing(FileCoupling::file2);
+
+    private final Repository repo;
+    private final int parallelism;
+
+    CouplingCalculator(Repository repo, int parallelism) {
+        this.repo = repo;
+        this.parallelism = parallelism;
+    }
+
+    CouplingStatisticsBuilder calculate(RevWalk walk, RevCommit tip, int maxFilesPerCommit, int maxPairs, Phase phase)
+            throws IOException {
+        List<Trees> commits = new ArrayList<>();
+        walk.markStart(tip);
+        for (RevCommit commit : walk) {
+            if (commit.getParentCount() <= 1) {
+                ObjectId oldTree = commit.getParentCount() == 0 ? null //
+                        : walk.parseCommit(commit.getParent(0)).getTree();
+                commits.add(new Trees(oldTree, commit.getTree()));
+            }
+        }
+
+        FileIds fileIds = new FileIds();
+        List<Counters> counters = new ArrayList<>();
+        int workers = Math.max(1, Math.min(parallelism, commits.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<Counters>> futures = new ArrayList<>();
+            for (int worker = 0; worker < workers; worker++) {
+                int first = worker;
+                futures.add(executor.submit(() -> count(commits, first, workers, maxFilesPerCommit, fileIds)));
+            }
+            for (Future<Counters> future : futures) {
+                counters.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while diffing");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ioe ? ioe : new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // merge into the largest counters
+        counters.sort(comparing((Counters c) -> c.pairs.size()).reversed());
+        Counters total = counters.get(0);
+        for (Counters other : counters.subList(1, counters.size())) {
+            total.commitCount += other.commitCount;
+            total.commitsSkipped += other.commitsSkipped;
+            total.files.addAll(other.files);
+            total.pairs.addAll(other.pairs);
+        }
+        phase.count("commits", total.commitCount).count("commitsSkipped", total.commitsSkipped) //
+                .count("files", fileIds.size()).count("pairs", total.pairs.size());
+
+        return new CouplingStatisticsBuilder() //
+                .commitCount(total.commitCount) //
+                .commitsSkipped(total.commitsSkipped) //
+                .pairCount(total.pairs.size()) //
+                .pairs(topPairs(total, fileIds, maxPairs));
+    }
+
+    private Counters count(List<Trees> commits, int first, int step, int maxFilesPerCommit,
+            FileIds fileIds) throws IOException {
+        Counters counters = new Counters();
+        List<String> paths = new ArrayList<>();
+        int[] ids = new int[maxFilesPerCommit];
+        try (ObjectReader reader = repo.newObjectReader(); //
+                TreeWalk treeWalk = new TreeWalk(reader)) {
+            for (int i = first; i < commits.size(); i += step) {
+                Trees trees = commits.get(i);
+                treeWalk.reset();
+                if (trees.oldTree() == null) {
+                    treeWalk.addTree(new EmptyTreeIterator());
+                } else {
+                    treeWalk.addTree(trees.oldTree());
+                }
+                treeWalk.addTree(trees.newTree());
+                treeWalk.setRecursive(true);
+                treeWalk.setFilter(TreeFilter.ANY_DIFF);
+                paths.clear();
+                while (paths.size() <= maxFilesPerCommit && treeWalk.next()) {
+                    paths.add(treeWalk.getPathString());
+                }
+                if (paths.size() > maxFilesPerCommit) {
+                    counters.commitsSkipped++;
+                    continue;
+                }
+                counters.commitCount++;
+                for (int j = 0; j < paths.size(); j++) {
+                    ids[j] = fileIds.id(paths.get(j));
+                }
+                Arrays.sort(ids, 0, paths.size());
+                for (int a = 0; a < paths.size(); a++) {
+                    counters.files.add(ids[a], 1);
+                    for (int b = a + 1; b < paths.size(); b++) {
+                        counters.pairs.add((long) ids[a] << 32 | ids[b], 1);
+                    }
+                }
+            }
+        }
+        return counters;
+    }
+
+    private static List<FileCoupling> topPairs(Counters counters, FileIds fileIds, int maxPairs) {
+        String[] files = fileIds.paths();
+
+        // bounded heap with the smallest selected pair at its head, pairs are only materialized if they may qualify
+        PriorityQueue<FileCoupling> heap = new PriorityQueue<>(ranking.reversed());
+        counters.pairs.forEach((key, count) -> {
+            if (heap.size() < maxPairs || (maxPairs > 0 && count >= heap.peek().commitCount())) {
+                int id1 = (int) (key >>> 32);
+                int id2 = (int) key;
+                boolean ordered = files[id1].compareTo(files[id2]) < 0;
+                heap.add(new FileCouplingBuilder() //
+                        .file1(ordered ? files[id1] : files[id2]) //
+                        .file2(ordered ? files[id2] : files[id1]) //
+                        .commitCount((int) count) //
+                        .commitCount1((int) counters.files.get(ordered ? id1 : id2)) //
+                        .commitCount2((int) counters.files.get(ordered ? id2 : id1)) //
+                        .build());
+                if (heap.size() > maxPairs) {
+                    heap.poll();
+                }
+            }
+        });
+        List<FileCoupling> result = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            result.add(heap.poll());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    private record Trees(ObjectId oldTree, ObjectId newTree) {
+    }
+
+    private static class FileIds {
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        private final AtomicInteger nextId = new AtomicInteger();
+
+        int id(String path) {
+            return ids.computeIfAbsent(path, k -> nextId.getAndIncrement());
+        }
+
+        int size() {
+            return ids.size();
+        }
+
+        String[] paths() {
+            String[] paths = new String[ids.size()];
+            ids.forEach((path, id) -> paths[id] = path);
+            return paths;
+        }
+    }
+
+    private static class Counters {
+        private int commitCount;
+        private int commitsSkipped;
+        private final IntCounter files = new IntCounter(); // commits by file id
+        private final LongCounter pairs = new LongCounter(); // commits by pair of file ids, the smaller id first
+    }
+}
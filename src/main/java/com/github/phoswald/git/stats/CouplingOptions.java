@@ -0,0 +1,10 @@
+package com.github.phoswald.git.stats;
+
+import com.github.phoswald.record.builder.RecordBuilder;
+
+@RecordBuilder
+public record CouplingOptions( //
+        Integer maxFilesPerCommit, // commits changing more files are skipped (mass refactorings), null means 50
+        Integer maxPairs // only the pairs changed together most often are returned, null means 100
+) {
+}
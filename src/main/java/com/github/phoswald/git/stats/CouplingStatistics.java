@@ -0,0 +1,16 @@
+package com.github.phoswald.git.stats;
+
+import java.util.List;
+
+import com.github.phoswald.record.builder.RecordBuilder;
+
+@RecordBuilder
+public record CouplingStatistics( //
+        String repo, //
+        String revision, //
+        int commitCount, // merge commits are neither diffed nor counted
+        int commitsSkipped, // changing more than CouplingOptions.maxFilesPerCommit() files
+        int pairCount, // distinct pairs of files changed together, before pruning
+        List<FileCoupling> pairs // most often changed together first
+) {
+}
@@ -0,0 +1,13 @@
+package com.github.phoswald.git.stats;
+
+import com.github.phoswald.record.builder.RecordBuilder;
+
+@RecordBuilder
+public record FileCoupling( //
+        String file1, //
+        String file2, //
+        int commitCount, // commits changing both files
+        int commitCount1, // commits changing file1 (skipped commits not included)
+        int commitCount2 // commits changing file2
+) {
+}
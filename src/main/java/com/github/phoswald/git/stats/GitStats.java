@@ -1,116 +1,533 @@
 package com.github.phoswald.git.stats;
 
 import static java.util.Comparator.comparing;
-import static java.util.stream.Collectors.counting;
-import static java.util.stream.Collectors.groupingBy;
-import static java.util.stream.StreamSupport.stream;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.file.Path;
 import java.time.Instant;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.LinkedHashMap;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.blame.BlameGenerator;
-import org.eclipse.jgit.blame.BlameResult;
+import org.eclipse.jgit.lib.FileMode;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
 import org.eclipse.jgit.revwalk.RevTree;
 import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.AndRevFilter;
+import org.eclipse.jgit.revwalk.filter.CommitTimeRevFilter;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
+import org.eclipse.jgit.storage.file.WindowCacheStats;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
 import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.github.phoswald.git.reports.ReportGenerator;
+import com.github.phoswald.git.stats.metrics.MetricsListener;
+import com.github.phoswald.git.stats.metrics.MetricsSnapshot;
+import com.github.phoswald.git.stats.metrics.Phase;
 
 public class GitStats implements AutoCloseable {
 
+    private static final WindowCacheConfig windowCacheConfig = new WindowCacheConfig(); // installed by any instance
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final Git git;
     private final Repository repo;
+    private final ObjectReader reader; // shared by all single-threaded walks
     private final Path repoPath;
+    private final Path outputPath;
+    private final MetricsListener metrics;
     private final ReportGenerator reportGenerator;
+    private final int parallelism;
+    private final LineCounter lineCounter;
+    private final BlameCache blameCache;
+    private final ChurnCalculator churnCalculator;
+    private final CouplingCalculator couplingCalculator;
+    private HistoryIndex historyIndex;
+    private ChangedPathIndex changedPathIndex;
 
     public GitStats(Path repoPath, Path outputPath) throws IOException {
+        this(repoPath, outputPath, new GitStatsConfigBuilder().build());
+    }
+
+    public GitStats(Path repoPath, Path outputPath, int parallelism) throws IOException {
+        this(repoPath, outputPath, new GitStatsConfigBuilder().parallelism(parallelism).build());
+    }
+
+    public GitStats(Path repoPath, Path outputPath, GitStatsConfig config) throws IOException {
+        configureWindowCache(config);
         this.git = Git.open(repoPath.toFile());
         this.repo = git.getRepository();
+        this.reader = repo.newObjectReader();
         this.repoPath = repoPath;
-        this.reportGenerator = new ReportGenerator(outputPath);
+        this.outputPath = outputPath;
+        this.metrics = config.metrics() != null ? config.metrics() : MetricsListener.NONE;
+        this.reportGenerator = new ReportGenerator(outputPath, metrics, config.maxSamples() != null //
+                ? config.maxSamples() //
+                : ReportGenerator.DEFAULT_MAX_SAMPLES);
+        this.parallelism = config.parallelism() != null //
+                ? config.parallelism() //
+                : Runtime.getRuntime().availableProcessors();
+        this.lineCounter = new LineCounter(repo, parallelism);
+        this.blameCache = new BlameCache(repo, config.blameCacheLines() != null //
+                ? config.blameCacheLines() //
+                : BlameCache.DEFAULT_MAX_LINES);
+        this.churnCalculator = new ChurnCalculator(repo, parallelism);
+        this.couplingCalculator = new CouplingCalculator(repo, parallelism);
+    }
+
+    // merged into the settings installed before, the cache is shared by all instances
+    private static synchronized void configureWindowCache(GitStatsConfig config) {
+        WindowCacheConfig cacheConfig = windowCacheConfig;
+        boolean changed = false;
+        if (config.packedGitWindowSize() != null) {
+            cacheConfig.setPackedGitWindowSize(config.packedGitWindowSize());
+            changed = true;
+        }
+        if (config.packedGitLimit() != null) {
+            cacheConfig.setPackedGitLimit(config.packedGitLimit());
+            changed = true;
+        }
+        if (config.deltaBaseCacheLimit() != null) {
+            cacheConfig.setDeltaBaseCacheLimit(config.deltaBaseCacheLimit());
+            changed = true;
+        }
+        if (config.packedGitMmap() != null) {
+            cacheConfig.setPackedGitMMAP(config.packedGitMmap());
+            changed = true;
+        }
+        if (config.streamFileThreshold() != null) {
+            cacheConfig.setStreamFileThreshold(config.streamFileThreshold());
+            changed = true;
+        }
+        if (changed) {
+            cacheConfig.install();
+        }
     }
 
     @Override
     public void close() {
+        lineCounter.close();
+        reader.close();
         git.close();
     }
 
+    /**
+     * Returns the statistics of JGit's window cache, which is shared by all repositories of the JVM. The figures are
+     * not specific to this instance.
+     */
+    public static CacheStatistics getGlobalCacheStatistics() {
+        WindowCacheStats stats = WindowCacheStats.getStats();
+        return new CacheStatisticsBuilder() //
+                .hitCount(stats.getHitCount()) //
+                .missCount(stats.getMissCount()) //
+                .hitRatio(stats.getHitRatio()) //
+                .loadCount(stats.getLoadCount()) //
+                .evictionCount(stats.getEvictionCount()) //
+                .averageLoadTime(stats.getAverageLoadTime()) //
+                .openFileCount(stats.getOpenFileCount()) //
+                .openByteCount(stats.getOpenByteCount()) //
+                .build();
+    }
+
     public CommitStatistics calculateCommitStatistics(String revision) throws IOException {
-        ObjectId objId = repo.resolve(revision);
-        try (RevWalk walk = new RevWalk(repo)) {
+        ObjectId objId = resolve(revision);
+        try (Phase phase = Phase.start(metrics, "calculateCommitStatistics"); //
+                RevWalk walk = new RevWalk(reader)) {
             RevCommit commit = walk.parseCommit(objId);
+            List<TreeFile> files = getFiles(commit);
+            int lineCount;
+            try (Phase lineCountPhase = Phase.start(metrics, "calculateCommitStatistics.lineCount")) {
+                lineCount = lineCounter.countLines(files.stream() //
+                        .filter(TreeFile::isRegular) //
+                        .map(TreeFile::objectId) //
+                        .toList(), lineCountPhase);
+            }
+            phase.count("files", files.size()).count("lines", lineCount);
             return new CommitStatisticsBuilder() //
                     .repo(repoPath.toString()) //
                     .revision(revision) //
                     .commit(createCommitInfo(commit)) //
-                    .fileCount(getFiles(repo, commit).size()) //
+                    .fileCount(files.size()) //
+                    .lineCount(lineCount) //
                     .build();
         }
     }
 
-    private List<String> getFiles(Repository repo, RevCommit commit) throws IOException {
-        List<String> fileNames = new ArrayList<>();
+    /**
+     * Calculates the statistics of many revisions at once. Every tree is only compared with the tree of the preceding
+     * revision, unchanged subtrees are skipped and only the differences are counted.
+     */
+    public List<CommitStatistics> calculateCommitStatistics(List<String> revisions) throws IOException {
+        List<CommitStatistics> result = new ArrayList<>();
+        try (Phase phase = Phase.start(metrics, "calculateCommitStatistics.revisions"); //
+                RevWalk walk = new RevWalk(reader)) {
+            RevTree previousTree = null;
+            int fileCount = 0;
+            int lineCount = 0;
+            for (String revision : revisions) {
+                RevCommit commit = walk.parseCommit(resolve(revision));
+                List<ObjectId> addedBlobs = new ArrayList<>();
+                List<ObjectId> removedBlobs = new ArrayList<>();
+                try (TreeWalk treeWalk = new TreeWalk(reader)) {
+                    if (previousTree == null) {
+                        treeWalk.addTree(new EmptyTreeIterator());
+                    } else {
+                        treeWalk.addTree(previousTree);
+                    }
+                    treeWalk.addTree(commit.getTree());
+                    treeWalk.setRecursive(true);
+                    treeWalk.setFilter(TreeFilter.ANY_DIFF);
+                    while (treeWalk.next()) {
+                        FileMode oldMode = treeWalk.getFileMode(0);
+                        FileMode newMode = treeWalk.getFileMode(1);
+                        if (oldMode != FileMode.MISSING) {
+                            fileCount--;
+                            if (isRegular(oldMode)) {
+                                removedBlobs.add(treeWalk.getObjectId(0));
+                            }
+                        }
+                        if (newMode != FileMode.MISSING) {
+                            fileCount++;
+                            if (isRegular(newMode)) {
+                                addedBlobs.add(treeWalk.getObjectId(1));
+                            }
+                        }
+                    }
+                }
+                lineCount += lineCounter.countLines(addedBlobs, phase) - lineCounter.countLines(removedBlobs, phase);
+                phase.count("revisions", 1).count("blobsChanged", addedBlobs.size() + removedBlobs.size());
+                previousTree = commit.getTree();
+                result.add(new CommitStatisticsBuilder() //
+                        .repo(repoPath.toString()) //
+                        .revision(revision) //
+                        .commit(createCommitInfo(commit)) //
+                        .fileCount(fileCount) //
+                        .lineCount(lineCount) //
+                        .build());
+            }
+        }
+        return result;
+    }
+
+    private List<TreeFile> getFiles(RevCommit commit) throws IOException {
+        List<TreeFile> files = new ArrayList<>();
         RevTree tree = commit.getTree();
-        try (TreeWalk treeWalk = new TreeWalk(repo)) {
+        try (Phase phase = Phase.start(metrics, "treeWalk"); //
+                TreeWalk treeWalk = new TreeWalk(reader)) {
             treeWalk.addTree(tree);
             treeWalk.setRecursive(true);
             while (treeWalk.next()) {
                 logger.debug("TreeWalk: hash={}, file={}", treeWalk.getObjectId(0).getName(), treeWalk.getPathString());
-                fileNames.add(treeWalk.getPathString());
+                files.add(new TreeFile(treeWalk.getPathString(), treeWalk.getFileMode(0), treeWalk.getObjectId(0)));
             }
+            phase.count("entries", files.size());
         }
-        return fileNames;
+        return files;
     }
 
     public BlameStatistics calculateBlameStatistics(String revision, Path file) throws IOException {
-        ObjectId objId = repo.resolve(revision);
-        try (BlameGenerator blameGenerator = new BlameGenerator(repo, file.toString())) {
-            BlameResult blameResult = blameGenerator.push(null, objId).computeBlameResult();
-            int lineCount = blameResult.getResultContents().size();
-
-            // collect lines sharing the same commit
-            Map<String, CommitLines> commits = new LinkedHashMap<>();
-            for (int line = 0; line < lineCount; line++) {
-                RevCommit commit = blameResult.getSourceCommit(line);
-                commits.computeIfAbsent(commit.getName(), k -> new CommitLines(commit)).lineCount++;
-            }
-
-            // aggregate line counts by users and timestamps
-            SortedMap<User, Long> lineCountByAuthor = new TreeMap<>(comparing(User::toString));
-            SortedMap<LocalDate, Long> lineCountByDate = new TreeMap<>();
-            for (var entry : commits.values()) {
-                logger.debug("CommitLines: hash={}, lineCount={}", entry.commit.hash(), entry.lineCount);
-                lineCountByAuthor.compute(entry.commit.author(), (k, v) -> entry.addLineCount(v));
-                lineCountByDate.compute(entry.commit.date(), (k, v) -> entry.addLineCount(v));
-            }
-            return new BlameStatisticsBuilder() //
+        return calculateBlameStatistics(revision, file, new BlameOptionsBuilder().build());
+    }
+
+    public BlameStatistics calculateBlameStatistics(String revision, Path file, BlameOptions options)
+            throws IOException {
+        ObjectId objId = resolve(revision);
+        return calculateBlameStatistics(revision, objId, file.toString(), options);
+    }
+
+    public BlameStatistics calculateBlameStatistics(String revision, Consumer<BlameStatistics> fileConsumer)
+            throws IOException {
+        return calculateBlameStatistics(revision, new BlameOptionsBuilder().build(), fileConsumer);
+    }
+
+    public BlameStatistics calculateBlameStatistics(String revision, BlameOptions options,
+            Consumer<BlameStatistics> fileConsumer) throws IOException {
+        ObjectId objId = resolve(revision);
+        List<TreeFile> treeFiles;
+        try (RevWalk walk = new RevWalk(reader)) {
+            treeFiles = getFiles(walk.parseCommit(objId));
+        }
+        List<TreeFile> textFiles = getTextFiles(treeFiles);
+        if (options.sampleSize() != null && options.sampleSize() < textFiles.size()) {
+            return sampleBlameStatistics(revision, objId, textFiles, options, fileConsumer);
+        }
+        List<String> files = textFiles.stream().map(TreeFile::path).toList();
+
+        // blame files in parallel, pass them on and merge them in order of completion
+        Phase phase = Phase.start(metrics, "calculateBlameStatistics.allFiles");
+        int lineCount = 0;
+        SortedMap<User, Long> lineCountByAuthor = new TreeMap<>(comparing(User::toString));
+        SortedMap<LocalDate, Long> lineCountByDate = new TreeMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(files.size(), 1)));
+        try {
+            CompletionService<BlameStatistics> completion = new ExecutorCompletionService<>(executor);
+            for (String file : files) {
+                completion.submit(() -> calculateBlameStatistics(revision, objId, file, options));
+            }
+            for (int i = 0; i < files.size(); i++) {
+                BlameStatistics fileStats = completion.take().get();
+                lineCount += fileStats.lineCount();
+                fileStats.lineCountByAuthor().forEach((k, v) -> lineCountByAuthor.merge(k, v, Long::sum));
+                fileStats.lineCountByDate().forEach((k, v) -> lineCountByDate.merge(k, v, Long::sum));
+                fileConsumer.accept(fileStats);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while blaming " + revision);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ioe ? ioe : new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+            phase.count("files", files.size()).count("lines", lineCount).close();
+        }
+        return new BlameStatisticsBuilder() //
+                .repo(repoPath.toString()) //
+                .revision(revision) //
+                .lineCount(lineCount) //
+                .lineCountByAuthor(lineCountByAuthor) //
+                .lineCountByDate(lineCountByDate) //
+                .build();
+    }
+
+    // regular files with at least one line, symlinks, submodules, empty and binary files have nothing to blame
+    private List<TreeFile> getTextFiles(List<TreeFile> treeFiles) throws IOException {
+        try (Phase phase = Phase.start(metrics, "calculateBlameStatistics.lineCount")) {
+            List<TreeFile> regularFiles = treeFiles.stream().filter(TreeFile::isRegular).toList();
+            lineCounter.countLines(regularFiles.stream().map(TreeFile::objectId).toList(), phase);
+            List<TreeFile> textFiles = new ArrayList<>();
+            for (TreeFile file : regularFiles) {
+                if (lineCounter.countLines(List.of(file.objectId()), phase) > 0) {
+                    textFiles.add(file);
+                }
+            }
+            phase.count("files", treeFiles.size()).count("textFiles", textFiles.size());
+            return textFiles;
+        }
+    }
+
+    /**
+     * Blames a stratified random sample of the text files and estimates the line counts of all files from it,
+     * see {@link BlameSample}. The total line count is exact.
+     */
+    private BlameStatistics sampleBlameStatistics(String revision, ObjectId objId, List<TreeFile> textFiles,
+            BlameOptions options, Consumer<BlameStatistics> fileConsumer) throws IOException {
+        BlameSample sample;
+        try (Phase phase = Phase.start(metrics, "calculateBlameStatistics.sample")) {
+            int[] lineCounts = new int[textFiles.size()];
+            for (int i = 0; i < lineCounts.length; i++) {
+                lineCounts[i] = lineCounter.countLines(List.of(textFiles.get(i).objectId()), phase);
+            }
+            sample = new BlameSample(textFiles.stream().map(TreeFile::path).toList(), lineCounts,
+                    options.sampleSize(), options.seed());
+            phase.count("files", textFiles.size()).count("filesSampled", sample.files().size());
+        }
+
+        Phase phase = Phase.start(metrics, "calculateBlameStatistics.sampledFiles");
+        ExecutorService executor = Executors.newFixedThreadPool( //
+                Math.min(parallelism, Math.max(sample.files().size(), 1)));
+        try {
+            CompletionService<BlameStatistics> completion = new ExecutorCompletionService<>(executor);
+            for (String file : sample.files()) {
+                completion.submit(() -> calculateBlameStatistics(revision, objId, file, options));
+            }
+            for (int i = 0; i < sample.files().size(); i++) {
+                BlameStatistics fileStats = completion.take().get();
+                sample.add(fileStats);
+                fileConsumer.accept(fileStats);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while blaming " + revision);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ioe ? ioe : new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+            phase.count("files", sample.files().size()).close();
+        }
+        SortedMap<User, Long> errorByAuthor = new TreeMap<>(comparing(User::toString));
+        SortedMap<LocalDate, Long> errorByDate = new TreeMap<>();
+        return new BlameStatisticsBuilder() //
+                .repo(repoPath.toString()) //
+                .revision(revision) //
+                .lineCount(Math.toIntExact(sample.lineCount())) //
+                .lineCountByAuthor(sample.estimateByAuthor(errorByAuthor)) //
+                .lineCountByDate(sample.estimateByDate(errorByDate)) //
+                .lineCountErrorByAuthor(errorByAuthor) //
+                .lineCountErrorByDate(errorByDate) //
+                .build();
+    }
+
+    private BlameStatistics calculateBlameStatistics(String revision, ObjectId objId, String file,
+            BlameOptions options) throws IOException {
+        if (options.streaming()) {
+            return streamBlameStatistics(revision, objId, file, options.maxLines());
+        }
+        RevCommit[] lineCommits;
+        try (Phase phase = Phase.start(metrics, "calculateBlameStatistics")) {
+            lineCommits = blameCache.blame(objId, file);
+            phase.count("blobsBlamed", 1).count("lines", lineCommits.length);
+        }
+
+        // collect lines sharing the same commit
+        Map<ObjectId, CommitLines> commits = new HashMap<>();
+        for (RevCommit commit : lineCommits) {
+            commits.computeIfAbsent(commit, k -> new CommitLines(commit)).lineCount++;
+        }
+        return createBlameStatistics(revision, file, lineCommits.length, commits);
+    }
+
+    private BlameStatistics streamBlameStatistics(String revision, ObjectId objId, String file, Integer maxLines)
+            throws IOException {
+        int lineCount;
+        Map<ObjectId, CommitLines> commits = new HashMap<>();
+        try (Phase phase = Phase.start(metrics, "calculateBlameStatistics.streaming"); //
+                BlameGenerator generator = new BlameGenerator(repo, file)) {
+            // larger files are reported with zero lines, so the line count matches the attributed lines
+            if (maxLines != null
+                    && (lineCount = lineCounter.countLines(List.of(findBlob(objId, file)), phase)) > maxLines) {
+                logger.debug("Skipping blame of {} with {} lines", file, lineCount);
+                phase.count("filesSkipped", 1);
+                return createBlameStatistics(revision, file, 0, commits);
+            }
+            generator.push(null, objId);
+            if (generator.getResultContents() == null) {
+                throw new FileNotFoundException("File not found: " + file);
+            }
+            lineCount = generator.getResultContents().size();
+            // add up regions as they are attributed, the lines themselves are never collected
+            while (generator.next()) {
+                RevCommit source = generator.getSourceCommit();
+                CommitLines entry = commits.get(source);
+                if (entry == null) {
+                    entry = new CommitLines(source);
+                    commits.put(source.copy(), entry);
+                }
+                entry.lineCount += generator.getRegionLength();
+            }
+            phase.count("blobsBlamed", 1).count("lines", lineCount);
+        }
+        return createBlameStatistics(revision, file, lineCount, commits);
+    }
+
+    // with a reader of its own, blames run in parallel
+    private ObjectId findBlob(ObjectId objId, String file) throws IOException {
+        try (RevWalk walk = new RevWalk(repo); //
+                TreeWalk treeWalk = TreeWalk.forPath(repo, file, walk.parseCommit(objId).getTree())) {
+            if (treeWalk == null) {
+                throw new FileNotFoundException("File not found: " + file);
+            }
+            return treeWalk.getObjectId(0);
+        }
+    }
+
+    private BlameStatistics createBlameStatistics(String revision, String file, int lineCount,
+            Map<ObjectId, CommitLines> commits) {
+        // aggregate line counts by users and timestamps
+        SortedMap<User, Long> lineCountByAuthor = new TreeMap<>(comparing(User::toString));
+        SortedMap<LocalDate, Long> lineCountByDate = new TreeMap<>();
+        for (var entry : commits.values()) {
+            logger.debug("CommitLines: hash={}, lineCount={}", entry.commit.hash(), entry.lineCount);
+            lineCountByAuthor.compute(entry.commit.author(), (k, v) -> entry.addLineCount(v));
+            lineCountByDate.compute(entry.commit.date(), (k, v) -> entry.addLineCount(v));
+        }
+        return new BlameStatisticsBuilder() //
+                .repo(repoPath.toString()) //
+                .revision(revision) //
+                .file(file) //
+                .lineCount(lineCount) //
+                .lineCountByAuthor(lineCountByAuthor) //
+                .lineCountByDate(lineCountByDate) //
+                .build();
+    }
+
+    public ChurnStatistics calculateChurnStatistics(String revision) throws IOException {
+        ObjectId objId = resolve(revision);
+        List<CommitChurn> commits = new ArrayList<>();
+        SortedMap<User, Churn> churnByAuthor = new TreeMap<>(comparing(User::toString));
+        SortedMap<YearMonth, Churn> churnByMonth = new TreeMap<>();
+        try (Phase phase = Phase.start(metrics, "calculateChurnStatistics"); //
+                RevWalk walk = new RevWalk(reader)) {
+            churnCalculator.calculate(walk, walk.parseCommit(objId), commit -> {
+                Churn churn = new Churn(commit.linesAdded(), commit.linesRemoved());
+                commits.add(commit);
+                churnByAuthor.merge(commit.commit().author(), churn, Churn::plus);
+                churnByMonth.merge(YearMonth.from(commit.commit().date()), churn, Churn::plus);
+            }, phase);
+        }
+        commits.sort(comparing(commit -> commit.commit().timestamp()));
+        return new ChurnStatisticsBuilder() //
+                .repo(repoPath.toString()) //
+                .revision(revision) //
+                .commitCount(commits.size()) //
+                .linesAdded(commits.stream().mapToLong(CommitChurn::linesAdded).sum()) //
+                .linesRemoved(commits.stream().mapToLong(CommitChurn::linesRemoved).sum()) //
+                .churnByAuthor(churnByAuthor) //
+                .churnByMonth(churnByMonth) //
+                .commits(commits) //
+                .build();
+    }
+
+    public CouplingStatistics calculateCouplingStatistics(String revision) throws IOException {
+        return calculateCouplingStatistics(revision, new CouplingOptionsBuilder().build());
+    }
+
+    public CouplingStatistics calculateCouplingStatistics(String revision, CouplingOptions options)
+            throws IOException {
+        ObjectId objId = resolve(revision);
+        int maxFilesPerCommit = options.maxFilesPerCommit() != null ? options.maxFilesPerCommit() : 50;
+        int maxPairs = options.maxPairs() != null ? options.maxPairs() : 100;
+        try (Phase phase = Phase.start(metrics, "calculateCouplingStatistics"); //
+                RevWalk walk = new RevWalk(reader)) {
+            return couplingCalculator.calculate(walk, walk.parseCommit(objId), maxFilesPerCommit, maxPairs, phase) //
                     .repo(repoPath.toString()) //
                     .revision(revision) //
-                    .file(file.toString()) //
-                    .lineCount(lineCount) //
-                    .lineCountByAuthor(lineCountByAuthor) //
-                    .lineCountByDate(lineCountByDate) //
                     .build();
         }
     }
 
-    private static CommitInfo createCommitInfo(RevCommit commit) {
+    public String resolveRevision(String revision) throws IOException {
+        return resolve(revision).getName();
+    }
+
+    private ObjectId resolve(String revision) throws IOException {
+        ObjectId objId = repo.resolve(revision);
+        if (objId == null) {
+            throw new FileNotFoundException("Revision not found: " + revision);
+        }
+        return objId;
+    }
+
+    static CommitInfo createCommitInfo(RevCommit commit) {
         return new CommitInfoBuilder() //
                 .hash(commit.getName()) //
                 .timestamp(Instant.ofEpochSecond(commit.getCommitTime())) //
@@ -123,36 +540,265 @@ public class GitStats implements AutoCloseable {
     }
 
     public HistoryStatistics calculateHistoryStatistics(String revision) throws IOException {
-        ObjectId objId = repo.resolve(revision);
-        try (RevWalk walk = new RevWalk(repo)) {
-            walk.markStart(walk.parseCommit(objId));
-            List<CommitInfo> commits = stream(walk.spliterator(), false) //
-                    .map(commit -> createCommitInfo(commit)) //
+        return calculateHistoryStatistics(revision, new HistoryOptionsBuilder().includeCommits(true).build());
+    }
+
+    public HistoryStatistics calculateHistoryStatistics(String revision, HistoryOptions options) throws IOException {
+        ObjectId objId = resolve(revision);
+        if (options.isFiltered()) {
+            return calculateFilteredHistoryStatistics(objId, options);
+        }
+        HistoryIndex index = getHistoryIndex();
+        int tip = updateHistoryIndex(revision, objId, options.parallel());
+
+        // feed the indexed columns straight into the counters, commits are only materialized on request
+        try (Phase phase = Phase.start(metrics, "calculateHistoryStatistics.aggregate")) {
+            BitSet reachable = index.reachable(tip);
+            HistoryAggregator aggregator = options.parallel() //
+                    ? aggregateParallel(index, reachable) //
+                    : aggregate(index, reachable, 0, index.size());
+            List<CommitInfo> commits = options.includeCommits() ? reachable.stream() //
+                    .mapToObj(index::commitInfo) //
                     .sorted(comparing(CommitInfo::timestamp)) //
-                    .toList();
-            return new HistoryStatisticsBuilder() //
-                    .commitCount(commits.size()) //
-                    .commitCountByAuthor(sortMap(commits.stream() //
-                            .collect(groupingBy(CommitInfo::author, counting())), comparing(User::toString))) //
-                    .commitCountByDate(sortMap(commits.stream() //
-                            .collect(groupingBy(CommitInfo::date, counting())))) //
-                    .commits(commits) //
-                    .build();
+                    .toList() : null;
+            phase.count("commits", reachable.cardinality());
+            return aggregator.build(commits);
+        }
+    }
+
+    /**
+     * Calculates the statistics of the commits that changed a file or directory, compared to their parent (merge
+     * commits are not counted). Only commits whose changed-path filter matches the path are diffed.
+     */
+    public HistoryStatistics calculatePathHistoryStatistics(String revision, Path path) throws IOException {
+        ObjectId objId = resolve(revision);
+        HistoryIndex index = getHistoryIndex();
+        int tip = updateHistoryIndex(revision, objId, false);
+        ChangedPathIndex pathIndex = getChangedPathIndex();
+        try (Phase phase = Phase.start(metrics, "calculatePathHistoryStatistics.index")) {
+            int added = pathIndex.update(repo, index, parallelism);
+            phase.count("commitsIndexed", added);
+            if (added > 0) {
+                pathIndex.save(changedPathIndexPath(), index);
+            }
+        }
+
+        String pathString = path.toString().replace('\\', '/');
+        try (Phase phase = Phase.start(metrics, "calculatePathHistoryStatistics.query"); //
+                RevWalk walk = new RevWalk(reader)) {
+            TreeFilter filter = AndTreeFilter.create(PathFilter.create(pathString), TreeFilter.ANY_DIFF);
+            HistoryAggregator aggregator = new HistoryAggregator(index.users());
+            List<CommitInfo> commits = new ArrayList<>();
+            int candidates = 0;
+            BitSet reachable = index.reachable(tip);
+            for (int position = reachable.nextSetBit(0); position >= 0; position = reachable.nextSetBit(position + 1)) {
+                if (index.parentCount(position) > 1 || !pathIndex.mightChange(position, pathString)) {
+                    continue;
+                }
+                candidates++;
+                RevCommit commit = walk.parseCommit(index.id(position));
+                try (TreeWalk treeWalk = new TreeWalk(reader)) {
+                    if (commit.getParentCount() == 0) {
+                        treeWalk.addTree(new EmptyTreeIterator());
+                    } else {
+                        treeWalk.addTree(walk.parseCommit(commit.getParent(0)).getTree());
+                    }
+                    treeWalk.addTree(commit.getTree());
+                    treeWalk.setRecursive(true);
+                    treeWalk.setFilter(filter);
+                    if (treeWalk.next()) {
+                        aggregator.add(index.commitTime(position), index.author(position));
+                        commits.add(index.commitInfo(position));
+                    }
+                }
+            }
+            phase.count("candidates", candidates).count("commits", commits.size());
+            commits.sort(comparing(CommitInfo::timestamp));
+            return aggregator.build(commits);
+        }
+    }
+
+    /**
+     * Loads the history reachable from a revision into a {@link CommitTable}, which can be queried repeatedly.
+     */
+    public CommitTable createCommitTable(String revision) throws IOException {
+        ObjectId objId = resolve(revision);
+        HistoryIndex index = getHistoryIndex();
+        int tip = updateHistoryIndex(revision, objId, false);
+        try (Phase phase = Phase.start(metrics, "createCommitTable")) {
+            CommitTable table = CommitTable.of(index, index.reachable(tip));
+            phase.count("commits", table.size());
+            return table;
+        }
+    }
+
+    private int updateHistoryIndex(String revision, ObjectId objId, boolean parallel) throws IOException {
+        HistoryIndex index = getHistoryIndex();
+        try (Phase phase = Phase.start(metrics, "calculateHistoryStatistics.walk"); //
+                RevWalk walk = new RevWalk(reader)) {
+            RevCommit commit = walk.parseCommit(objId);
+            int added = parallel //
+                    ? index.update(repo, List.of(commit), parallelism) // merge parents are walked in parallel
+                    : index.update(walk, commit);
+            logger.debug("HistoryIndex: revision={}, added={}, size={}", revision, added, index.size());
+            phase.count("commitsWalked", added);
+            if (added > 0) {
+                index.save(historyIndexPath());
+            }
+            return index.find(commit);
+        }
+    }
+
+    private HistoryAggregator aggregateParallel(HistoryIndex index, BitSet reachable) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<HistoryAggregator>> futures = new ArrayList<>();
+            for (int worker = 0; worker < parallelism; worker++) {
+                int from = worker * index.size() / parallelism;
+                int to = (worker + 1) * index.size() / parallelism;
+                futures.add(executor.submit(() -> aggregate(index, reachable, from, to)));
+            }
+            HistoryAggregator aggregator = new HistoryAggregator(index.users());
+            for (Future<HistoryAggregator> future : futures) {
+                aggregator.addAll(future.get());
+            }
+            return aggregator;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while aggregating history");
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static HistoryAggregator aggregate(HistoryIndex index, BitSet reachable, int from, int to) {
+        HistoryAggregator aggregator = new HistoryAggregator(index.users());
+        for (int position = reachable.nextSetBit(from); position >= 0 && position < to;
+                position = reachable.nextSetBit(position + 1)) {
+            aggregator.add(index.commitTime(position), index.author(position));
+        }
+        return aggregator;
+    }
+
+    // filters are applied by the walk, which stops at the first commit before 'since' (newest commits come first)
+    private HistoryStatistics calculateFilteredHistoryStatistics(ObjectId objId, HistoryOptions options)
+            throws IOException {
+        try (Phase phase = Phase.start(metrics, "calculateHistoryStatistics.filtered"); //
+                RevWalk walk = new RevWalk(reader)) {
+            List<RevFilter> filters = new ArrayList<>();
+            if (options.since() != null) {
+                filters.add(CommitTimeRevFilter.after(options.since().toEpochMilli()));
+            }
+            if (options.until() != null) {
+                filters.add(CommitTimeRevFilter.before(options.until().toEpochMilli()));
+            }
+            if (options.authors() != null) {
+                filters.add(new AuthorFilter(Set.copyOf(options.authors())));
+            }
+            walk.setRevFilter(filters.isEmpty() ? RevFilter.ALL
+                    : filters.size() == 1 ? filters.get(0) : AndRevFilter.create(filters));
+            if (options.paths() != null && !options.paths().isEmpty()) {
+                walk.setTreeFilter(AndTreeFilter.create(PathFilterGroup.createFromStrings(options.paths()),
+                        TreeFilter.ANY_DIFF));
+            }
+            walk.sort(RevSort.COMMIT_TIME_DESC);
+            walk.markStart(walk.parseCommit(objId));
+
+            UserDictionary users = new UserDictionary();
+            HistoryAggregator aggregator = new HistoryAggregator(users);
+            List<CommitInfo> commits = options.includeCommits() ? new ArrayList<>() : null;
+            for (RevCommit commit : walk) {
+                aggregator.add(commit.getCommitTime(), users.id(commit.getAuthorIdent()));
+                if (commits != null) {
+                    commits.add(createCommitInfo(commit));
+                }
+            }
+            phase.count("commits", aggregator.commitCount());
+            if (commits != null) {
+                commits.sort(comparing(CommitInfo::timestamp));
+            }
+            return aggregator.build(commits);
+        }
+    }
+
+    private HistoryIndex getHistoryIndex() throws IOException {
+        if (historyIndex == null) {
+            try (Phase phase = Phase.start(metrics, "loadHistoryIndex")) {
+                historyIndex = HistoryIndex.load(historyIndexPath());
+                phase.count("commits", historyIndex.size());
+            }
+        }
+        return historyIndex;
+    }
+
+    private ChangedPathIndex getChangedPathIndex() throws IOException {
+        if (changedPathIndex == null) {
+            try (Phase phase = Phase.start(metrics, "loadChangedPathIndex")) {
+                changedPathIndex = ChangedPathIndex.load(changedPathIndexPath(), getHistoryIndex());
+                phase.count("commits", changedPathIndex.size());
+            }
         }
+        return changedPathIndex;
+    }
+
+    private Path changedPathIndexPath() {
+        return outputPath.resolve("paths.idx");
+    }
+
+    private Path historyIndexPath() {
+        return outputPath.resolve("history.idx");
     }
 
     public List<Path> generateHistoryReport(HistoryStatistics stats) throws IOException {
-        return reportGenerator.generateHistoryReport(stats.commits());
+        return reportGenerator.generateHistoryReport(stats);
+    }
+
+    public Path generateCompactHistoryReport(HistoryStatistics stats) throws IOException {
+        return reportGenerator.generateCompactHistoryReport(stats);
+    }
+
+    public Path generateCompactHistoryReport(CommitTable table) throws IOException {
+        return reportGenerator.generateCompactHistoryReport(table);
     }
 
-    private <K, V> SortedMap<K, V> sortMap(Map<K, V> map) {
-        return sortMap(map, null);
+    public Path generateCouplingReport(CouplingStatistics stats) throws IOException {
+        return reportGenerator.generateCouplingReport(stats);
     }
 
-    private <K, V> SortedMap<K, V> sortMap(Map<K, V> map, Comparator<? super K> comparator) {
-        var tree = new TreeMap<K, V>(comparator);
-        tree.putAll(map);
-        return tree;
+    public Path generateMetricsReport(MetricsSnapshot metrics) throws IOException {
+        return reportGenerator.generateMetricsReport(metrics);
+    }
+
+    private static boolean isRegular(FileMode mode) {
+        return mode == FileMode.REGULAR_FILE || mode == FileMode.EXECUTABLE_FILE;
+    }
+
+    private record TreeFile(String path, FileMode mode, ObjectId objectId) {
+
+        boolean isRegular() {
+            return GitStats.isRegular(mode);
+        }
+    }
+
+    private static class AuthorFilter extends RevFilter {
+        private final Set<String> authors;
+
+        AuthorFilter(Set<String> authors) {
+            this.authors = authors;
+        }
+
+        @Override
+        public boolean include(RevWalk walker, RevCommit commit) {
+            PersonIdent author = commit.getAuthorIdent();
+            return authors.contains(author.getEmailAddress()) || authors.contains(author.getName());
+        }
+
+        @Override
+        public RevFilter clone() {
+            return this;
+        }
     }
 
     private static class CommitLines {
@@ -0,0 +1,25 @@
+package com.github.phoswald.git.stats;
+
+import com.github.phoswald.git.stats.metrics.MetricsListener;
+import com.github.phoswald.record.builder.RecordBuilder;
+
+/**
+ * Performance and instrumentation settings of {@link GitStats}, null means default.
+ * <p>
+ * The pack settings configure JGit's window cache, which is shared by all repositories of the JVM. They are applied
+ * when a {@link GitStats} is created with at least one of them set, replacing the cache. Settings that are not set
+ * keep the value of earlier instances.
+ */
+@RecordBuilder
+public record GitStatsConfig( //
+        Integer parallelism, // default: number of processors
+        Integer packedGitWindowSize, // bytes read from a pack file at once, power of 2
+        Long packedGitLimit, // maximum bytes of pack windows in the cache
+        Integer deltaBaseCacheLimit, // maximum bytes of inflated delta bases in the cache
+        Boolean packedGitMmap, // memory map pack windows instead of reading them into heap
+        Integer streamFileThreshold, // blobs larger than this are streamed instead of loaded into memory
+        Integer maxSamples, // maximum samples per line chart trace, longer ones are downsampled
+        Long blameCacheLines, // maximum lines of blamed files remembered for later revisions, 0 disables
+        MetricsListener metrics // receives timings and counters of all operations
+) {
+}
@@ -0,0 +1,152 @@
+package com.github.phoswald.git.stats;
+
+import static java.util.Comparator.comparing;
+
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Counts commits by author, date, year, month, author and year, author and month in a single pass.
+ * <p>
+ * Authors are counted by their id in the given dictionary and dates by epoch day (UTC), using primitive arrays and
+ * maps only. Users and dates are materialized when the statistics are built. The distinct authors per month are
+ * counted from the counters by author and month.
+ */
+class HistoryAggregator {
+
+    private final UserDictionary users;
+    private int commitCount;
+    private long[] countByAuthor = new long[16];
+    private final IntCounter countByDate = new IntCounter();
+    private final IntCounter countByYear = new IntCounter();
+    private final IntCounter countByMonth = new IntCounter(); // key: year * 12 + month - 1
+    private IntCounter[] countByAuthorAndYear = new IntCounter[16];
+    private IntCounter[] countByAuthorAndMonth = new IntCounter[16];
+
+    HistoryAggregator(UserDictionary users) {
+        this.users = users;
+    }
+
+    void add(int commitTime, int author) {
+        int epochDay = Math.floorDiv(commitTime, 86400);
+        int month = epochMonth(epochDay);
+        int year = Math.floorDiv(month, 12);
+        ensureAuthors(author);
+        if (countByAuthor[author]++ == 0) {
+            countByAuthorAndYear[author] = new IntCounter();
+            countByAuthorAndMonth[author] = new IntCounter();
+        }
+        commitCount++;
+        countByDate.add(epochDay, 1);
+        countByYear.add(year, 1);
+        countByMonth.add(month, 1);
+        countByAuthorAndYear[author].add(year, 1);
+        countByAuthorAndMonth[author].add(month, 1);
+    }
+
+    // merges the counts of an aggregator that used the same dictionary
+    void addAll(HistoryAggregator other) {
+        ensureAuthors(other.countByAuthor.length - 1);
+        for (int author = 0; author < other.countByAuthor.length; author++) {
+            if (other.countByAuthor[author] > 0) {
+                if (countByAuthor[author] == 0) {
+                    countByAuthorAndYear[author] = new IntCounter();
+                    countByAuthorAndMonth[author] = new IntCounter();
+                }
+                countByAuthor[author] += other.countByAuthor[author];
+                countByAuthorAndYear[author].addAll(other.countByAuthorAndYear[author]);
+                countByAuthorAndMonth[author].addAll(other.countByAuthorAndMonth[author]);
+            }
+        }
+        commitCount += other.commitCount;
+        countByDate.addAll(other.countByDate);
+        countByYear.addAll(other.countByYear);
+        countByMonth.addAll(other.countByMonth);
+    }
+
+    int commitCount() {
+        return commitCount;
+    }
+
+    HistoryStatistics build(List<CommitInfo> commits) {
+        SortedMap<User, Long> byAuthor = new TreeMap<>(comparing(User::toString));
+        SortedMap<User, SortedMap<Year, Long>> byAuthorAndYear = new TreeMap<>(comparing(User::toString));
+        SortedMap<User, SortedMap<YearMonth, Long>> byAuthorAndMonth = new TreeMap<>(comparing(User::toString));
+        for (int author = 0; author < countByAuthor.length; author++) {
+            if (countByAuthor[author] > 0) {
+                User user = users.user(author);
+                byAuthor.put(user, countByAuthor[author]);
+                byAuthorAndYear.put(user, toYears(countByAuthorAndYear[author]));
+                byAuthorAndMonth.put(user, toMonths(countByAuthorAndMonth[author]));
+            }
+        }
+        IntCounter authorCountByMonth = new IntCounter();
+        for (int author = 0; author < countByAuthor.length; author++) {
+            if (countByAuthor[author] > 0) {
+                countByAuthorAndMonth[author].forEach((month, count) -> authorCountByMonth.add(month, 1));
+            }
+        }
+        SortedMap<LocalDate, Long> byDate = new TreeMap<>();
+        countByDate.forEach((epochDay, count) -> byDate.put(LocalDate.ofEpochDay(epochDay), count));
+        return new HistoryStatisticsBuilder() //
+                .commitCount(commitCount) //
+                .commitCountByAuthor(byAuthor) //
+                .commitCountByDate(byDate) //
+                .commitCountByYear(toYears(countByYear)) //
+                .commitCountByMonth(toMonths(countByMonth)) //
+                .commitCountByAuthorAndYear(byAuthorAndYear) //
+                .commitCountByAuthorAndMonth(byAuthorAndMonth) //
+                .authorCountByMonth(toMonths(authorCountByMonth)) //
+                .commits(commits) //
+                .build();
+    }
+
+    private void ensureAuthors(int author) {
+        if (author >= countByAuthor.length) {
+            int capacity = Math.max(author + 1, countByAuthor.length * 2);
+            countByAuthor = Arrays.copyOf(countByAuthor, capacity);
+            countByAuthorAndYear = Arrays.copyOf(countByAuthorAndYear, capacity);
+            countByAuthorAndMonth = Arrays.copyOf(countByAuthorAndMonth, capacity);
+        }
+    }
+
+    private static SortedMap<Year, Long> toYears(IntCounter counter) {
+        SortedMap<Year, Long> result = new TreeMap<>();
+        counter.forEach((year, count) -> result.put(Year.of(year), count));
+        return result;
+    }
+
+    // distinct authors per month, for statistics that were not built by an aggregator
+    static SortedMap<YearMonth, Long> authorCountByMonth(Map<User, ? extends Map<YearMonth, Long>> byAuthorAndMonth) {
+        SortedMap<YearMonth, Long> result = new TreeMap<>();
+        for (Map<YearMonth, Long> months : byAuthorAndMonth.values()) {
+            months.keySet().forEach(month -> result.merge(month, 1L, Long::sum));
+        }
+        return result;
+    }
+
+    private static SortedMap<YearMonth, Long> toMonths(IntCounter counter) {
+        SortedMap<YearMonth, Long> result = new TreeMap<>();
+        counter.forEach((month, count) -> result.put(YearMonth.of(Math.floorDiv(month, 12), Math.floorMod(month, 12) + 1), count));
+        return result;
+    }
+
+    // Converts days since 1970-01-01 into year * 12 + month - 1 (proleptic Gregorian, as LocalDate.ofEpochDay())
+    static int epochMonth(int epochDay) {
+        int days = epochDay + 719468; // days since 0000-03-01
+        int era = Math.floorDiv(days, 146097);
+        int dayOfEra = days - era * 146097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153; // 0 = March
+        int year = yearOfEra + era * 400 + (shiftedMonth >= 10 ? 1 : 0);
+        int month = shiftedMonth < 10 ? shiftedMonth + 2 : shiftedMonth - 10; // 0 = January
+        return year * 12 + month;
+    }
+}
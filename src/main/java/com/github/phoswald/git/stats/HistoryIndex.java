@@ -0,0 +1,363 @@
+package com.github.phoswald.git.stats;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Columnar index of commits that have already been walked, persisted as a binary file.
+ * <p>
+ * Layout: magic, version, commit count, user count, users (name, email), commit ids, commit times, author ids,
+ * parent offsets, parent positions and messages. Parents refer to positions within the index, so the history
+ * reachable from any indexed commit can be computed without accessing the repository.
+ */
+class HistoryIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(HistoryIndex.class);
+    private static final int MAGIC = 0x47534849; // "GSHI"
+    private static final int VERSION = 1;
+
+    private final UserDictionary users = new UserDictionary();
+    private final Map<ObjectId, Integer> positions = new HashMap<>();
+    private int size;
+    private ObjectId[] ids = new ObjectId[0];
+    private int[] commitTimes = new int[0];
+    private int[] authors = new int[0];
+    private String[] messages = new String[0];
+    private int[] parentOffsets = new int[1];
+    private int[] parents = new int[0];
+
+    static HistoryIndex load(Path file) throws IOException {
+        HistoryIndex index = new HistoryIndex();
+        if (!Files.exists(file)) {
+            return index;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                logger.warn("Ignoring history index with unknown format: {}", file);
+                return new HistoryIndex();
+            }
+            int commitCount = buffer.getInt();
+            int userCount = buffer.getInt();
+            for (int i = 0; i < userCount; i++) {
+                index.users.id(new UserBuilder().name(getString(buffer)).email(getString(buffer)).build());
+            }
+            index.ensureCapacity(commitCount, 0);
+            byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+            for (int i = 0; i < commitCount; i++) {
+                buffer.get(raw);
+                index.ids[i] = ObjectId.fromRaw(raw);
+                index.positions.put(index.ids[i], i);
+            }
+            buffer.asIntBuffer().get(index.commitTimes, 0, commitCount);
+            buffer.position(buffer.position() + 4 * commitCount);
+            buffer.asIntBuffer().get(index.authors, 0, commitCount);
+            buffer.position(buffer.position() + 4 * commitCount);
+            index.parentOffsets = new int[commitCount + 1];
+            buffer.asIntBuffer().get(index.parentOffsets);
+            buffer.position(buffer.position() + 4 * (commitCount + 1));
+            index.parents = new int[index.parentOffsets[commitCount]];
+            buffer.asIntBuffer().get(index.parents);
+            buffer.position(buffer.position() + 4 * index.parents.length);
+            for (int i = 0; i < commitCount; i++) {
+                index.messages[i] = getString(buffer);
+            }
+            index.size = commitCount;
+            return index;
+        } catch (BufferUnderflowException e) {
+            logger.warn("Ignoring truncated history index: {}", file);
+            return new HistoryIndex();
+        }
+    }
+
+    void save(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(size);
+            out.writeInt(users.size());
+            for (int i = 0; i < users.size(); i++) {
+                putString(out, users.user(i).name());
+                putString(out, users.user(i).email());
+            }
+            byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+            for (int i = 0; i < size; i++) {
+                ids[i].copyRawTo(raw, 0);
+                out.write(raw);
+            }
+            for (int i = 0; i < size; i++) {
+                out.writeInt(commitTimes[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                out.writeInt(authors[i]);
+            }
+            for (int i = 0; i <= size; i++) {
+                out.writeInt(parentOffsets[i]);
+            }
+            for (int i = 0; i < parentOffsets[size]; i++) {
+                out.writeInt(parents[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                putString(out, messages[i]);
+            }
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    int size() {
+        return size;
+    }
+
+    int find(AnyObjectId id) {
+        Integer position = positions.get(id);
+        return position == null ? -1 : position.intValue();
+    }
+
+    int update(RevWalk walk, RevCommit tip) throws IOException {
+        // collect commits reachable from tip, stopping at commits that are already indexed
+        List<Entry> entries = new ArrayList<>();
+        Set<ObjectId> collected = new HashSet<>();
+        Deque<RevCommit> pending = new ArrayDeque<>();
+        pending.push(tip);
+        while (!pending.isEmpty()) {
+            RevCommit commit = pending.pop();
+            if (positions.containsKey(commit) || collected.contains(commit)) {
+                continue;
+            }
+            walk.parseBody(commit);
+            collected.add(commit.copy());
+            entries.add(new Entry(commit));
+            for (RevCommit parent : commit.getParents()) {
+                pending.push(parent);
+            }
+        }
+        append(entries);
+        return entries.size();
+    }
+
+    /**
+     * Like {@link #update(RevWalk, RevCommit)} for many starting points, parsing commits on multiple threads. Every
+     * task follows a first-parent chain with its own walk until it reaches a commit that is indexed or claimed by
+     * another task, further parents of merges are handed to new tasks.
+     */
+    int update(Repository repo, List<? extends ObjectId> starts, int parallelism) throws IOException {
+        ParallelUpdate update = new ParallelUpdate(repo, parallelism);
+        List<Entry> entries;
+        try {
+            starts.forEach(update::submit);
+            update.release();
+            update.done.get();
+            entries = new ArrayList<>(update.entries);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while updating history index");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ioe ? ioe : new IOException(e.getCause());
+        } finally {
+            update.executor.shutdownNow();
+        }
+        append(entries);
+        return entries.size();
+    }
+
+    // appends new commits, their parents are either indexed or new
+    private void append(List<Entry> entries) {
+        int parentCount = parentOffsets[size];
+        for (int i = 0; i < entries.size(); i++) {
+            positions.put(entries.get(i).id(), size + i);
+            parentCount += entries.get(i).parents().length;
+        }
+        ensureCapacity(size + entries.size(), parentCount);
+        for (Entry entry : entries) {
+            int position = size++;
+            ids[position] = entry.id();
+            commitTimes[position] = entry.commitTime();
+            authors[position] = users.id(entry.author());
+            messages[position] = entry.message();
+            int offset = parentOffsets[position];
+            for (ObjectId parent : entry.parents()) {
+                parents[offset++] = positions.get(parent);
+            }
+            parentOffsets[position + 1] = offset;
+        }
+    }
+
+    BitSet reachable(int position) {
+        BitSet visited = new BitSet(size);
+        int[] stack = new int[16];
+        int top = 0;
+        stack[top++] = position;
+        visited.set(position);
+        while (top > 0) {
+            int current = stack[--top];
+            for (int i = parentOffsets[current]; i < parentOffsets[current + 1]; i++) {
+                int parent = parents[i];
+                if (!visited.get(parent)) {
+                    visited.set(parent);
+                    if (top == stack.length) {
+                        stack = Arrays.copyOf(stack, top * 2);
+                    }
+                    stack[top++] = parent;
+                }
+            }
+        }
+        return visited;
+    }
+
+    ObjectId id(int position) {
+        return ids[position];
+    }
+
+    int parentCount(int position) {
+        return parentOffsets[position + 1] - parentOffsets[position];
+    }
+
+    int commitTime(int position) {
+        return commitTimes[position];
+    }
+
+    int author(int position) {
+        return authors[position];
+    }
+
+    String message(int position) {
+        return messages[position];
+    }
+
+    UserDictionary users() {
+        return users;
+    }
+
+    CommitInfo commitInfo(int position) {
+        return new CommitInfoBuilder() //
+                .hash(ids[position].getName()) //
+                .timestamp(Instant.ofEpochSecond(commitTimes[position])) //
+                .author(users.user(authors[position])) //
+                .message(messages[position]) //
+                .build();
+    }
+
+    private record Entry(ObjectId id, int commitTime, PersonIdent author, String message, ObjectId[] parents) {
+
+        Entry(RevCommit commit) {
+            this(commit.copy(), commit.getCommitTime(), commit.getAuthorIdent(), commit.getShortMessage(),
+                    Arrays.stream(commit.getParents()).map(RevCommit::copy).toArray(ObjectId[]::new));
+        }
+    }
+
+    private class ParallelUpdate {
+
+        private final Repository repo;
+        private final ExecutorService executor;
+        private final Map<ObjectId, Boolean> claimed = new ConcurrentHashMap<>();
+        private final Queue<Entry> entries = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger(1); // 1 for the submitter until all starts are queued
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        ParallelUpdate(Repository repo, int parallelism) {
+            this.repo = repo;
+            this.executor = Executors.newFixedThreadPool(parallelism);
+        }
+
+        void submit(ObjectId start) {
+            pending.incrementAndGet();
+            executor.execute(() -> {
+                try {
+                    walkChain(start);
+                } catch (Exception e) {
+                    done.completeExceptionally(e);
+                } finally {
+                    release();
+                }
+            });
+        }
+
+        void release() {
+            if (pending.decrementAndGet() == 0) {
+                done.complete(null);
+            }
+        }
+
+        // the index itself is only read while the tasks are running
+        private void walkChain(ObjectId start) throws IOException {
+            try (RevWalk walk = new RevWalk(repo)) {
+                ObjectId current = start;
+                while (current != null && !done.isDone() && !positions.containsKey(current)
+                        && claimed.putIfAbsent(current, Boolean.TRUE) == null) {
+                    RevCommit commit = walk.parseCommit(current);
+                    entries.add(new Entry(commit));
+                    for (int i = 1; i < commit.getParentCount(); i++) {
+                        submit(commit.getParent(i).copy());
+                    }
+                    current = commit.getParentCount() > 0 ? commit.getParent(0).copy() : null;
+                }
+            }
+        }
+    }
+
+    private void ensureCapacity(int commitCount, int parentCount) {
+        if (commitCount > ids.length) {
+            int capacity = Math.max(commitCount, ids.length * 3 / 2);
+            ids = Arrays.copyOf(ids, capacity);
+            commitTimes = Arrays.copyOf(commitTimes, capacity);
+            authors = Arrays.copyOf(authors, capacity);
+            messages = Arrays.copyOf(messages, capacity);
+            parentOffsets = Arrays.copyOf(parentOffsets, capacity + 1);
+        }
+        if (parentCount > parents.length) {
+            parents = Arrays.copyOf(parents, Math.max(parentCount, parents.length * 3 / 2));
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static void putString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
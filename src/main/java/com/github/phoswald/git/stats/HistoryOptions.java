@@ -0,0 +1,21 @@
+package com.github.phoswald.git.stats;
+
+import java.time.Instant;
+import java.util.List;
+
+import com.github.phoswald.record.builder.RecordBuilder;
+
+@RecordBuilder
+public record HistoryOptions( //
+        boolean includeCommits, //
+        boolean parallel, // unfiltered only: parse new commits and aggregate on all threads of GitStats
+        List<String> paths, // only commits changing files below any of these paths, null means all
+        Instant since, // only commits at or after this commit time, null means no limit
+        Instant until, // only commits at or before this commit time, null means no limit
+        List<String> authors // only commits with an author name or email in this list, null means all
+) {
+
+    boolean isFiltered() {
+        return (paths != null && !paths.isEmpty()) || since != null || until != null || authors != null;
+    }
+}
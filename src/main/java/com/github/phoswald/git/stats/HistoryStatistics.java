@@ -1,6 +1,8 @@
 package com.github.phoswald.git.stats;
 
 import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
 import java.util.List;
 import java.util.SortedMap;
 
@@ -11,6 +13,11 @@ public record HistoryStatistics( //
         int commitCount, //
         SortedMap<User, Long> commitCountByAuthor, //
         SortedMap<LocalDate, Long> commitCountByDate, //
-        List<CommitInfo> commits //
+        SortedMap<Year, Long> commitCountByYear, //
+        SortedMap<YearMonth, Long> commitCountByMonth, //
+        SortedMap<User, SortedMap<Year, Long>> commitCountByAuthorAndYear, //
+        SortedMap<User, SortedMap<YearMonth, Long>> commitCountByAuthorAndMonth, //
+        SortedMap<YearMonth, Long> authorCountByMonth, // distinct authors
+        List<CommitInfo> commits // null unless requested by HistoryOptions.includeCommits()
 ) {
 }
@@ -0,0 +1,75 @@
+package com.github.phoswald.git.stats;
+
+/**
+ * Open addressing hash map from int keys to positive long counts, without boxing.
+ */
+class IntCounter {
+
+    private int[] keys = new int[16];
+    private long[] counts = new long[16]; // 0 marks an empty slot
+    private int size;
+
+    void add(int key, long count) {
+        if (count <= 0) {
+            return;
+        }
+        int slot = find(key);
+        if (counts[slot] == 0) {
+            keys[slot] = key;
+            if (++size * 2 > keys.length) {
+                counts[slot] = count;
+                rehash();
+                return;
+            }
+        }
+        counts[slot] += count;
+    }
+
+    long get(int key) {
+        return counts[find(key)];
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEach(Consumer consumer) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (counts[slot] != 0) {
+                consumer.accept(keys[slot], counts[slot]);
+            }
+        }
+    }
+
+    void addAll(IntCounter other) {
+        other.forEach(this::add);
+    }
+
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int hash = key * 0x9E3779B9;
+        int slot = (hash ^ hash >>> 16) & mask;
+        while (counts[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        int[] oldKeys = keys;
+        long[] oldCounts = counts;
+        keys = new int[oldKeys.length * 2];
+        counts = new long[oldKeys.length * 2];
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldCounts[slot] != 0) {
+                int newSlot = find(oldKeys[slot]);
+                keys[newSlot] = oldKeys[slot];
+                counts[newSlot] = oldCounts[slot];
+            }
+        }
+    }
+
+    interface Consumer {
+        void accept(int key, long count);
+    }
+}
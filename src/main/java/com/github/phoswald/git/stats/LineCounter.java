@@ -0,0 +1,142 @@
+package com.github.phoswald.git.stats;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+
+import com.github.phoswald.git.stats.metrics.Phase;
+
+/**
+ * Counts lines of blobs by scanning their raw bytes, binary blobs count as zero lines. Results are memoized per
+ * blob id, so blobs that are unchanged between revisions are only counted once. The worker threads are started on
+ * first use and kept until {@link #close()}.
+ */
+class LineCounter implements AutoCloseable {
+
+    private final Repository repo;
+    private final int parallelism;
+    private final Map<ObjectId, Integer> cache = new ConcurrentHashMap<>();
+    private ExecutorService executor;
+
+    LineCounter(Repository repo, int parallelism) {
+        this.repo = repo;
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    int countLines(Collection<ObjectId> blobs, Phase phase) throws IOException {
+        // count blobs that are not cached yet in parallel, each worker with its own reader
+        List<ObjectId> pending = new ArrayList<>(new LinkedHashSet<>(blobs));
+        pending.removeIf(cache::containsKey);
+        if (!pending.isEmpty()) {
+            int workers = Math.min(parallelism, pending.size());
+            ExecutorService executor = getExecutor();
+            List<Future<Long>> futures = new ArrayList<>();
+            try {
+                for (int worker = 0; worker < workers; worker++) {
+                    List<ObjectId> chunk = pending.subList( //
+                            worker * pending.size() / workers, (worker + 1) * pending.size() / workers);
+                    futures.add(executor.submit(() -> countLines(chunk)));
+                }
+                long bytesRead = 0;
+                for (Future<Long> future : futures) {
+                    bytesRead += future.get();
+                }
+                phase.count("blobsRead", pending.size()).count("bytesRead", bytesRead);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while counting lines");
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof IOException ioe ? ioe : new IOException(e.getCause());
+            } finally {
+                futures.forEach(future -> future.cancel(true)); // no-op for completed chunks
+            }
+        }
+
+        int lineCount = 0;
+        for (ObjectId blob : blobs) {
+            lineCount += cache.get(blob);
+        }
+        return lineCount;
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(parallelism);
+        }
+        return executor;
+    }
+
+    private long countLines(List<ObjectId> blobs) throws IOException {
+        long bytesRead = 0;
+        try (ObjectReader reader = repo.newObjectReader()) {
+            for (ObjectId blob : blobs) {
+                ObjectLoader loader = reader.open(blob, Constants.OBJ_BLOB);
+                cache.put(blob, countLines(loader));
+                bytesRead += loader.getSize();
+            }
+        }
+        return bytesRead;
+    }
+
+    // a final line without terminator counts as well (like RawText.size())
+    private static int countLines(ObjectLoader loader) throws IOException {
+        if (!loader.isLarge()) {
+            byte[] bytes = loader.getCachedBytes();
+            if (RawText.isBinary(bytes, bytes.length)) {
+                return 0;
+            }
+            int lineCount = countNewlines(bytes, bytes.length);
+            return bytes.length > 0 && bytes[bytes.length - 1] != '\n' ? lineCount + 1 : lineCount;
+        }
+        try (InputStream stream = loader.openStream()) {
+            byte[] buffer = new byte[RawText.getBufferSize()];
+            int length = stream.readNBytes(buffer, 0, buffer.length);
+            if (RawText.isBinary(buffer, length)) {
+                return 0;
+            }
+            int lineCount = 0;
+            byte last = '\n';
+            while (length > 0) {
+                lineCount += countNewlines(buffer, length);
+                last = buffer[length - 1];
+                length = stream.read(buffer);
+            }
+            return last != '\n' ? lineCount + 1 : lineCount;
+        }
+    }
+
+    private static int countNewlines(byte[] bytes, int length) {
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] == '\n') {
+                count++;
+            }
+        }
+        return count;
+    }
+}
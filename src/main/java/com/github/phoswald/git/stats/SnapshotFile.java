@@ -0,0 +1,390 @@
+package com.github.phoswald.git.stats;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Comparator.comparing;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Binary format of {@link StatisticsSnapshot}.
+ * <p>
+ * Layout: magic, version, users (name, email), then a flag and the content of the history, commit and blame
+ * statistics. Counts and lengths are varints, users are referred to by their position, dates by epoch day and
+ * months by epoch month. Keys of sorted maps and commit times are stored as zigzag varint deltas to their
+ * predecessor, commit hashes as raw bytes.
+ */
+class SnapshotFile {
+
+    private static final int MAGIC = 0x47535353; // "GSSS"
+    private static final int VERSION = 1;
+
+    private SnapshotFile() { }
+
+    static void write(Path file, StatisticsSnapshot snapshot) throws IOException {
+        UserDictionary users = new UserDictionary();
+        collectUsers(users, snapshot);
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            Writer writer = new Writer(out, users);
+            out.writeInt(MAGIC);
+            writer.putVarLong(VERSION);
+            writer.putVarLong(users.size());
+            for (int i = 0; i < users.size(); i++) {
+                writer.putString(users.user(i).name());
+                writer.putString(users.user(i).email());
+            }
+            out.writeBoolean(snapshot.history() != null);
+            if (snapshot.history() != null) {
+                writer.putHistory(snapshot.history());
+            }
+            out.writeBoolean(snapshot.commit() != null);
+            if (snapshot.commit() != null) {
+                writer.putCommit(snapshot.commit());
+            }
+            out.writeBoolean(snapshot.blame() != null);
+            if (snapshot.blame() != null) {
+                writer.putBlame(snapshot.blame());
+            }
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static StatisticsSnapshot read(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a statistics snapshot: " + file);
+            }
+            Reader reader = new Reader(buffer);
+            long version = reader.getVarLong();
+            if (version != VERSION) {
+                throw new IOException("Unsupported statistics snapshot version " + version + ": " + file);
+            }
+            int userCount = reader.getVarInt();
+            for (int i = 0; i < userCount; i++) {
+                reader.users.add(new UserBuilder().name(reader.getString()).email(reader.getString()).build());
+            }
+            StatisticsSnapshotBuilder builder = new StatisticsSnapshotBuilder();
+            if (buffer.get() != 0) {
+                builder.history(reader.getHistory());
+            }
+            if (buffer.get() != 0) {
+                builder.commit(reader.getCommit());
+            }
+            if (buffer.get() != 0) {
+                builder.blame(reader.getBlame());
+            }
+            return builder.build();
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException("Corrupt statistics snapshot: " + file, e);
+        }
+    }
+
+    private static void collectUsers(UserDictionary users, StatisticsSnapshot snapshot) {
+        HistoryStatistics history = snapshot.history();
+        if (history != null) {
+            history.commitCountByAuthor().keySet().forEach(users::id);
+            history.commitCountByAuthorAndYear().keySet().forEach(users::id);
+            history.commitCountByAuthorAndMonth().keySet().forEach(users::id);
+            if (history.commits() != null) {
+                history.commits().forEach(commit -> users.id(commit.author()));
+            }
+        }
+        if (snapshot.commit() != null && snapshot.commit().commit() != null) {
+            users.id(snapshot.commit().commit().author());
+        }
+        if (snapshot.blame() != null) {
+            snapshot.blame().lineCountByAuthor().keySet().forEach(users::id);
+            if (snapshot.blame().lineCountErrorByAuthor() != null) {
+                snapshot.blame().lineCountErrorByAuthor().keySet().forEach(users::id);
+            }
+        }
+    }
+
+    private static long epochMonth(YearMonth month) {
+        return month.getYear() * 12L + month.getMonthValue() - 1;
+    }
+
+    private static YearMonth yearMonth(long epochMonth) {
+        return YearMonth.of((int) Math.floorDiv(epochMonth, 12), Math.floorMod(epochMonth, 12) + 1);
+    }
+
+    private static class Writer {
+
+        private final DataOutputStream out;
+        private final UserDictionary users;
+        private final byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+
+        Writer(DataOutputStream out, UserDictionary users) {
+            this.out = out;
+            this.users = users;
+        }
+
+        void putHistory(HistoryStatistics stats) throws IOException {
+            putVarLong(stats.commitCount());
+            putCounts(stats.commitCountByAuthor(), this::user);
+            putCounts(stats.commitCountByDate(), LocalDate::toEpochDay);
+            putCounts(stats.commitCountByYear(), Year::getValue);
+            putCounts(stats.commitCountByMonth(), SnapshotFile::epochMonth);
+            putVarLong(stats.commitCountByAuthorAndYear().size());
+            for (var entry : stats.commitCountByAuthorAndYear().entrySet()) {
+                putVarLong(user(entry.getKey()));
+                putCounts(entry.getValue(), Year::getValue);
+            }
+            putVarLong(stats.commitCountByAuthorAndMonth().size());
+            for (var entry : stats.commitCountByAuthorAndMonth().entrySet()) {
+                putVarLong(user(entry.getKey()));
+                putCounts(entry.getValue(), SnapshotFile::epochMonth);
+            }
+            putNullableCounts(stats.authorCountByMonth(), SnapshotFile::epochMonth);
+            out.writeBoolean(stats.commits() != null);
+            if (stats.commits() != null) {
+                putVarLong(stats.commits().size());
+                long previous = 0;
+                for (CommitInfo commit : stats.commits()) {
+                    long seconds = commit.timestamp().getEpochSecond();
+                    putZigzag(seconds - previous);
+                    previous = seconds;
+                    putCommitInfo(commit);
+                }
+            }
+        }
+
+        void putCommit(CommitStatistics stats) throws IOException {
+            putString(stats.repo());
+            putString(stats.revision());
+            out.writeBoolean(stats.commit() != null);
+            if (stats.commit() != null) {
+                putZigzag(stats.commit().timestamp().getEpochSecond());
+                putCommitInfo(stats.commit());
+            }
+            putVarLong(stats.fileCount());
+            putVarLong(stats.lineCount());
+        }
+
+        void putBlame(BlameStatistics stats) throws IOException {
+            putString(stats.repo());
+            putString(stats.revision());
+            putString(stats.file());
+            putVarLong(stats.lineCount());
+            putCounts(stats.lineCountByAuthor(), this::user);
+            putCounts(stats.lineCountByDate(), LocalDate::toEpochDay);
+            putNullableCounts(stats.lineCountErrorByAuthor(), this::user);
+            putNullableCounts(stats.lineCountErrorByDate(), LocalDate::toEpochDay);
+        }
+
+        // users are collected before the dictionary is written, ids are never assigned here
+        private long user(User user) {
+            int id = users.find(user);
+            if (id < 0) {
+                throw new IllegalStateException("User not collected: " + user);
+            }
+            return id;
+        }
+
+        private void putCommitInfo(CommitInfo commit) throws IOException {
+            ObjectId.fromString(commit.hash()).copyRawTo(raw, 0);
+            out.write(raw);
+            putVarLong(user(commit.author()));
+            putString(commit.message());
+        }
+
+        private <K> void putCounts(Map<K, Long> counts, ToLongFunction<K> key) throws IOException {
+            putVarLong(counts.size());
+            long previous = 0;
+            for (var entry : counts.entrySet()) {
+                long current = key.applyAsLong(entry.getKey());
+                putZigzag(current - previous);
+                putVarLong(entry.getValue());
+                previous = current;
+            }
+        }
+
+        private <K> void putNullableCounts(Map<K, Long> counts, ToLongFunction<K> key) throws IOException {
+            out.writeBoolean(counts != null);
+            if (counts != null) {
+                putCounts(counts, key);
+            }
+        }
+
+        // null is encoded as length 0, all other lengths are incremented by one
+        void putString(String value) throws IOException {
+            if (value == null) {
+                putVarLong(0);
+            } else {
+                byte[] bytes = value.getBytes(UTF_8);
+                putVarLong(bytes.length + 1L);
+                out.write(bytes);
+            }
+        }
+
+        private void putZigzag(long value) throws IOException {
+            putVarLong((value << 1) ^ (value >> 63));
+        }
+
+        void putVarLong(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+    }
+
+    private static class Reader {
+
+        private final ByteBuffer buffer;
+        private final List<User> users = new ArrayList<>();
+        private final byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+
+        Reader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        HistoryStatistics getHistory() {
+            HistoryStatisticsBuilder builder = new HistoryStatisticsBuilder() //
+                    .commitCount(getVarInt()) //
+                    .commitCountByAuthor(getCounts(new TreeMap<>(comparing(User::toString)), this::user)) //
+                    .commitCountByDate(getCounts(new TreeMap<>(), LocalDate::ofEpochDay)) //
+                    .commitCountByYear(getCounts(new TreeMap<>(), year -> Year.of((int) year))) //
+                    .commitCountByMonth(getCounts(new TreeMap<>(), SnapshotFile::yearMonth));
+            SortedMap<User, SortedMap<Year, Long>> byAuthorAndYear = new TreeMap<>(comparing(User::toString));
+            for (int i = getVarInt(); i > 0; i--) {
+                byAuthorAndYear.put(user(getVarLong()), getCounts(new TreeMap<>(), year -> Year.of((int) year)));
+            }
+            SortedMap<User, SortedMap<YearMonth, Long>> byAuthorAndMonth = new TreeMap<>(comparing(User::toString));
+            for (int i = getVarInt(); i > 0; i--) {
+                byAuthorAndMonth.put(user(getVarLong()), getCounts(new TreeMap<>(), SnapshotFile::yearMonth));
+            }
+            SortedMap<YearMonth, Long> authorCountByMonth = getNullableCounts(TreeMap::new, SnapshotFile::yearMonth);
+            List<CommitInfo> commits = null;
+            if (buffer.get() != 0) {
+                int count = getVarInt();
+                commits = new ArrayList<>(count);
+                long seconds = 0;
+                for (int i = 0; i < count; i++) {
+                    seconds += getZigzag();
+                    commits.add(getCommitInfo(seconds));
+                }
+            }
+            return builder //
+                    .commitCountByAuthorAndYear(byAuthorAndYear) //
+                    .commitCountByAuthorAndMonth(byAuthorAndMonth) //
+                    .authorCountByMonth(authorCountByMonth) //
+                    .commits(commits) //
+                    .build();
+        }
+
+        CommitStatistics getCommit() {
+            CommitStatisticsBuilder builder = new CommitStatisticsBuilder() //
+                    .repo(getString()) //
+                    .revision(getString());
+            if (buffer.get() != 0) {
+                builder.commit(getCommitInfo(getZigzag()));
+            }
+            return builder //
+                    .fileCount(getVarInt()) //
+                    .lineCount(getVarInt()) //
+                    .build();
+        }
+
+        BlameStatistics getBlame() {
+            return new BlameStatisticsBuilder() //
+                    .repo(getString()) //
+                    .revision(getString()) //
+                    .file(getString()) //
+                    .lineCount(getVarInt()) //
+                    .lineCountByAuthor(getCounts(new TreeMap<>(comparing(User::toString)), this::user)) //
+                    .lineCountByDate(getCounts(new TreeMap<>(), LocalDate::ofEpochDay)) //
+                    .lineCountErrorByAuthor(getNullableCounts(() -> new TreeMap<>(comparing(User::toString)),
+                            this::user)) //
+                    .lineCountErrorByDate(getNullableCounts(TreeMap::new, LocalDate::ofEpochDay)) //
+                    .build();
+        }
+
+        private CommitInfo getCommitInfo(long seconds) {
+            buffer.get(raw);
+            String hash = ObjectId.fromRaw(raw).name();
+            return new CommitInfoBuilder() //
+                    .hash(hash) //
+                    .timestamp(Instant.ofEpochSecond(seconds)) //
+                    .author(user(getVarLong())) //
+                    .message(getString()) //
+                    .build();
+        }
+
+        private <K> SortedMap<K, Long> getCounts(SortedMap<K, Long> counts, LongFunction<K> key) {
+            long previous = 0;
+            for (int i = getVarInt(); i > 0; i--) {
+                previous += getZigzag();
+                counts.put(key.apply(previous), getVarLong());
+            }
+            return counts;
+        }
+
+        private <K> SortedMap<K, Long> getNullableCounts(Supplier<SortedMap<K, Long>> counts, LongFunction<K> key) {
+            return buffer.get() != 0 ? getCounts(counts.get(), key) : null;
+        }
+
+        private User user(long id) {
+            return users.get((int) id);
+        }
+
+        String getString() {
+            int length = getVarInt();
+            if (length == 0) {
+                return null;
+            }
+            if (length - 1 > buffer.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            String value = new String(buffer.array(), buffer.position(), length - 1, UTF_8);
+            buffer.position(buffer.position() + length - 1);
+            return value;
+        }
+
+        private long getZigzag() {
+            long value = getVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        int getVarInt() {
+            return Math.toIntExact(getVarLong());
+        }
+
+        long getVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buffer.get();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint at " + buffer.position());
+        }
+    }
+}
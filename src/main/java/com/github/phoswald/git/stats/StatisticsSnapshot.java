@@ -0,0 +1,26 @@
+package com.github.phoswald.git.stats;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import com.github.phoswald.record.builder.RecordBuilder;
+
+/**
+ * Statistics that can be written to and read from a compact binary file, so reports can be regenerated or compared
+ * without the repository. Each of the statistics is optional.
+ */
+@RecordBuilder
+public record StatisticsSnapshot( //
+        HistoryStatistics history, //
+        CommitStatistics commit, //
+        BlameStatistics blame //
+) {
+
+    public static StatisticsSnapshot read(Path file) throws IOException {
+        return SnapshotFile.read(file);
+    }
+
+    public void write(Path file) throws IOException {
+        SnapshotFile.write(file, this);
+    }
+}
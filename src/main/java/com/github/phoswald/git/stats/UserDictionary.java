@@ -0,0 +1,45 @@
+package com.github.phoswald.git.stats;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jgit.lib.PersonIdent;
+
+/**
+ * Maps each distinct user to a small int id, ids are assigned in order of appearance starting at 0. Not thread-safe.
+ */
+class UserDictionary {
+
+    private final List<User> users = new ArrayList<>();
+    private final Map<User, Integer> ids = new HashMap<>();
+
+    int id(PersonIdent ident) {
+        return id(new UserBuilder().name(ident.getName()).email(ident.getEmailAddress()).build());
+    }
+
+    int id(User user) {
+        Integer id = ids.get(user);
+        if (id == null) {
+            id = users.size();
+            users.add(user);
+            ids.put(user, id);
+        }
+        return id.intValue();
+    }
+
+    // -1 if the user has no id yet
+    int find(User user) {
+        Integer id = ids.get(user);
+        return id == null ? -1 : id.intValue();
+    }
+
+    User user(int id) {
+        return users.get(id);
+    }
+
+    int size() {
+        return users.size();
+    }
+}
@@ -3,35 +3,95 @@ package com.github.phoswald.git.stats.charts;
 import static com.github.phoswald.git.reports.Dataset.dataset;
 
 import java.io.IOException;
+import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.github.phoswald.git.reports.Dataset;
 import com.github.phoswald.git.reports.Sample;
 import com.github.phoswald.git.reports.Sequence;
-
-import jakarta.json.bind.Jsonb;
-import jakarta.json.bind.JsonbBuilder;
-import jakarta.json.bind.JsonbConfig;
+import com.github.phoswald.git.stats.metrics.MetricsListener;
+import com.github.phoswald.git.stats.metrics.Phase;
 
 public class ChartGenerator {
 
-    private static final String plotlyUrl = "https://cdn.plot.ly/plotly-2.16.1.min.js";
-    private static final Jsonb json = JsonbBuilder.create(new JsonbConfig().withFormatting(true));
+    static final String plotlyUrl = "https://cdn.plot.ly/plotly-2.16.1.min.js";
 
     private final Path targetDir;
+    private final MetricsListener metrics;
 
     public ChartGenerator(Path targetDir) {
+        this(targetDir, MetricsListener.NONE);
+    }
+
+    public ChartGenerator(Path targetDir, MetricsListener metrics) {
         this.targetDir = targetDir;
+        this.metrics = metrics;
     }
 
     public Path generatePieChart(String name, Sequence sequence) throws IOException {
+        try (Phase phase = Phase.start(metrics, "ChartGenerator.generatePieChart")) {
+            phase.count("samples", sequence.samples().size());
+            return pieChart(name, sequence);
+        }
+    }
+
+    public Path generateBarChart(String name, Sequence sequence) throws IOException {
+        try (Phase phase = Phase.start(metrics, "ChartGenerator.generateBarChart")) {
+            phase.count("samples", sequence.samples().size());
+            return barsChart(name, dataset(null, sequence));
+        }
+    }
+
+    public Path generateBarsChart(String name, Dataset dataset) throws IOException {
+        try (Phase phase = Phase.start(metrics, "ChartGenerator.generateBarsChart")) {
+            phase.count("samples", sampleCount(dataset));
+            return barsChart(name, dataset);
+        }
+    }
+
+    public Path generateLineChart(String name, Sequence sequence) throws IOException {
+        try (Phase phase = Phase.start(metrics, "ChartGenerator.generateLineChart")) {
+            phase.count("samples", sequence.samples().size());
+            return linesChart(name, dataset(null, sequence));
+        }
+    }
+
+    public Path generateLinesChart(String name, Dataset dataset) throws IOException {
+        try (Phase phase = Phase.start(metrics, "ChartGenerator.generateLinesChart")) {
+            phase.count("samples", sampleCount(dataset));
+            return linesChart(name, dataset);
+        }
+    }
+
+    /**
+     * Generates a heatmap with one row per sequence and one column per distinct sample label, missing samples are
+     * zero.
+     */
+    public Path generateHeatmapChart(String name, Dataset dataset) throws IOException {
+        try (Phase phase = Phase.start(metrics, "ChartGenerator.generateHeatmapChart")) {
+            phase.count("samples", sampleCount(dataset));
+            return heatmapChart(name, dataset);
+        }
+    }
+
+    public ChartPage newPage(String name) {
+        return new ChartPage(targetDir, name, metrics);
+    }
+
+    private static int sampleCount(Dataset dataset) {
+        return dataset.sequences().stream().mapToInt(sequence -> sequence.samples().size()).sum();
+    }
+
+    private Path pieChart(String name, Sequence sequence) throws IOException {
         PlotlyTrace trace = new PlotlyTraceBuilder() //
                 .type("pie") //
                 .labels(sequence.samples().stream().map(Sample::label).toList()) //
-                .values(sequence.samples().stream().map(Sample::valueAsStr).toList()) //
+                .values(values(sequence)) //
                 .build();
         PlotlyLayout layout = new PlotlyLayoutBuilder() //
                 .title(name) //
@@ -41,17 +101,13 @@ public class ChartGenerator {
         return generatePlotlyChart(name, Arrays.asList(trace), layout);
     }
 
-    public Path generateBarChart(String name, Sequence sequence) throws IOException {
-        return generateBarsChart(name, dataset(null, sequence));
-    }
-
-    public Path generateBarsChart(String name, Dataset dataset) throws IOException {
+    private Path barsChart(String name, Dataset dataset) throws IOException {
         List<PlotlyTrace> traces = dataset.sequences().stream() //
                 .map(sequence -> new PlotlyTraceBuilder() //
                         .type("bar") //
                         .name(sequence.label()) //
                         .x(sequence.samples().stream().map(Sample::label).toList()) //
-                        .y(sequence.samples().stream().map(Sample::valueAsStr).toList()) //
+                        .y(values(sequence)) //
                         .build())
                 .toList();
         PlotlyLayout layout = new PlotlyLayoutBuilder() //
@@ -62,17 +118,13 @@ public class ChartGenerator {
         return generatePlotlyChart(name, traces, layout);
     }
 
-    public Path generateLineChart(String name, Sequence sequence) throws IOException {
-        return generateLinesChart(name, dataset(null, sequence));
-    }
-
-    public Path generateLinesChart(String name, Dataset dataset) throws IOException {
+    private Path linesChart(String name, Dataset dataset) throws IOException {
         List<PlotlyTrace> traces = dataset.sequences().stream() //
                 .map(sequence -> new PlotlyTraceBuilder() //
                         .type("scatter") //
                         .name(sequence.label()) //
                         .x(sequence.samples().stream().map(Sample::label).toList()) //
-                        .y(sequence.samples().stream().map(Sample::valueAsStr).toList()) //
+                        .y(values(sequence)) //
                         .build())
                 .toList();
         PlotlyLayout layout = new PlotlyLayoutBuilder() //
@@ -83,31 +135,142 @@ public class ChartGenerator {
         return generatePlotlyChart(name, traces, layout);
     }
 
+    private Path heatmapChart(String name, Dataset dataset) throws IOException {
+        List<String> columns = dataset.sequences().stream() //
+                .flatMap(sequence -> sequence.samples().stream()) //
+                .map(Sample::label) //
+                .distinct() //
+                .sorted() //
+                .toList();
+        Map<String, Integer> columnIndexes = new HashMap<>();
+        for (String column : columns) {
+            columnIndexes.put(column, columnIndexes.size());
+        }
+        double[][] rows = new double[dataset.sequences().size()][];
+        for (int row = 0; row < rows.length; row++) {
+            rows[row] = new double[columns.size()];
+            for (Sample sample : dataset.sequences().get(row).samples()) {
+                rows[row][columnIndexes.get(sample.label())] = sample.value();
+            }
+        }
+        PlotlyTrace trace = new PlotlyTraceBuilder() //
+                .type("heatmap") //
+                .x(columns) //
+                .yLabels(dataset.sequences().stream().map(Sequence::label).toList()) //
+                .z(rows) //
+                .build();
+        PlotlyLayout layout = new PlotlyLayoutBuilder() //
+                .title(name) //
+                .width(1000) //
+                .height(1000) //
+                .build();
+        return generatePlotlyChart(name, Arrays.asList(trace), layout);
+    }
+
     private Path generatePlotlyChart(String name, List<PlotlyTrace> data, PlotlyLayout layout) throws IOException {
         Files.createDirectories(targetDir);
         Path filePath = targetDir.resolve(name + ".html");
-        String fileContent = """
-                <!doctype html>
-                <html lang="en">
-                <head>
-                  <title>${name}</title>
-                  <script src="${plotlyUrl}"></script>
-                </head>
-                <body>
-                  <div id="placeholder"></div>
-                  <script>
-                    var data = ${data};
-                    var layout = ${layout};
-                    Plotly.newPlot(document.getElementById("placeholder"), data, layout);
-                  </script>
-                </body>
-                </html>"""; //
-        fileContent = fileContent //
-                .replace("${plotlyUrl}", plotlyUrl) //
-                .replace("${name}", name) //
-                .replace("${data}", json.toJson(data).replace("\n", "\n    ")) //
-                .replace("${layout}", json.toJson(layout).replace("\n", "\n    "));
-        Files.writeString(filePath, fileContent);
+        try (Writer out = Files.newBufferedWriter(filePath)) {
+            out.write("""
+                    <!doctype html>
+                    <html lang="en">
+                    <head>
+                      <title>""");
+            out.write(name);
+            out.write("""
+                    </title>
+                      <script src="%s"></script>
+                    </head>
+                    <body>
+                      <div id="placeholder"></div>
+                      <script>
+                    """.formatted(plotlyUrl));
+            JsonWriter json = new JsonWriter(out);
+            out.write("    var data = ");
+            json.beginArray();
+            for (PlotlyTrace trace : data) {
+                writeTrace(json, trace);
+            }
+            json.endArray();
+            out.write(";\n    var layout = ");
+            writeLayout(json, layout);
+            out.write("""
+                    ;
+                        Plotly.newPlot(document.getElementById("placeholder"), data, layout);
+                      </script>
+                    </body>
+                    </html>""");
+        }
         return filePath;
     }
+
+    private static void writeTrace(JsonWriter json, PlotlyTrace trace) throws IOException {
+        json.beginObject();
+        writeProperty(json, "name", trace.name());
+        writeProperty(json, "type", trace.type());
+        writeProperty(json, "labels", trace.labels());
+        writeProperty(json, "values", trace.values());
+        writeProperty(json, "x", trace.x());
+        writeProperty(json, "y", trace.y());
+        writeProperty(json, "y", trace.yLabels());
+        if (trace.z() != null) {
+            json.name("z").beginArray();
+            for (double[] row : trace.z()) {
+                writeValues(json, row);
+            }
+            json.endArray();
+        }
+        json.endObject();
+    }
+
+    private static void writeLayout(JsonWriter json, PlotlyLayout layout) throws IOException {
+        json.beginObject();
+        writeProperty(json, "title", layout.title());
+        if (layout.width() != null) {
+            json.name("width").value(layout.width());
+        }
+        if (layout.height() != null) {
+            json.name("height").value(layout.height());
+        }
+        json.endObject();
+    }
+
+    // null properties are omitted, like JSON-B does by default
+    private static void writeProperty(JsonWriter json, String name, String value) throws IOException {
+        if (value != null) {
+            json.name(name).value(value);
+        }
+    }
+
+    private static void writeProperty(JsonWriter json, String name, List<String> values) throws IOException {
+        if (values != null) {
+            writeValues(json.name(name), values);
+        }
+    }
+
+    private static void writeProperty(JsonWriter json, String name, double[] values) throws IOException {
+        if (values != null) {
+            writeValues(json.name(name), values);
+        }
+    }
+
+    private static void writeValues(JsonWriter json, List<String> values) throws IOException {
+        json.beginArray();
+        for (String value : values) {
+            json.value(value);
+        }
+        json.endArray();
+    }
+
+    private static void writeValues(JsonWriter json, double[] values) throws IOException {
+        json.beginArray();
+        for (double value : values) {
+            json.value(value);
+        }
+        json.endArray();
+    }
+
+    private static double[] values(Sequence sequence) {
+        return sequence.samples().stream().mapToDouble(Sample::value).toArray();
+    }
 }
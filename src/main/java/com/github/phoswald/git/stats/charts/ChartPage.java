@@ -0,0 +1,156 @@
+package com.github.phoswald.git.stats.charts;
+
+import static com.github.phoswald.git.reports.Dataset.dataset;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.phoswald.git.reports.Dataset;
+import com.github.phoswald.git.reports.Sample;
+import com.github.phoswald.git.reports.Sequence;
+import com.github.phoswald.git.stats.metrics.MetricsListener;
+import com.github.phoswald.git.stats.metrics.Phase;
+
+/**
+ * Collects charts and writes them into one HTML page.
+ * <p>
+ * The data of all charts is written once, as a columnar JSON block: distinct label arrays are shared between traces
+ * and charts, values are plain numeric arrays. The charts are built from that block in the browser.
+ */
+public class ChartPage {
+
+    private final Path targetDir;
+    private final String name;
+    private final MetricsListener metrics;
+    private final List<Chart> charts = new ArrayList<>();
+
+    ChartPage(Path targetDir, String name, MetricsListener metrics) {
+        this.targetDir = targetDir;
+        this.name = name;
+        this.metrics = metrics;
+    }
+
+    public ChartPage addPieChart(String name, Sequence sequence) {
+        charts.add(new Chart(name, "pie", dataset(null, sequence)));
+        return this;
+    }
+
+    public ChartPage addBarChart(String name, Sequence sequence) {
+        return addBarsChart(name, dataset(null, sequence));
+    }
+
+    public ChartPage addBarsChart(String name, Dataset dataset) {
+        charts.add(new Chart(name, "bar", dataset));
+        return this;
+    }
+
+    public ChartPage addLineChart(String name, Sequence sequence) {
+        return addLinesChart(name, dataset(null, sequence));
+    }
+
+    public ChartPage addLinesChart(String name, Dataset dataset) {
+        charts.add(new Chart(name, "scatter", dataset));
+        return this;
+    }
+
+    public Path generate() throws IOException {
+        try (Phase phase = Phase.start(metrics, "ChartGenerator.generatePage")) {
+            Map<List<String>, Integer> labelIds = new HashMap<>();
+            List<List<String>> labels = new ArrayList<>();
+            List<int[]> traceLabels = new ArrayList<>();
+            for (Chart chart : charts) {
+                int[] ids = new int[chart.dataset().sequences().size()];
+                for (int i = 0; i < ids.length; i++) {
+                    List<String> sequenceLabels = chart.dataset().sequences().get(i).samples().stream() //
+                            .map(Sample::label) //
+                            .toList();
+                    ids[i] = labelIds.computeIfAbsent(sequenceLabels, key -> {
+                        labels.add(key);
+                        return labels.size() - 1;
+                    });
+                }
+                traceLabels.add(ids);
+            }
+
+            Files.createDirectories(targetDir);
+            Path filePath = targetDir.resolve(name + ".html");
+            try (BufferedWriter out = Files.newBufferedWriter(filePath)) {
+                JsonWriter json = new JsonWriter(out);
+                out.write("""
+                        <!doctype html>
+                        <html lang="en">
+                        <head>
+                          <title>""");
+                out.write(escapeHtml(name));
+                out.write("""
+                        </title>
+                          <script src="%s"></script>
+                        </head>
+                        <body>
+                          <script>
+                        """.formatted(ChartGenerator.plotlyUrl));
+                out.write("    var labels = ");
+                json.beginArray();
+                for (List<String> array : labels) {
+                    json.beginArray();
+                    for (String label : array) {
+                        json.value(label);
+                    }
+                    json.endArray();
+                }
+                json.endArray();
+                out.write(";\n    var charts = ");
+                json.beginArray();
+                int samples = 0;
+                for (int c = 0; c < charts.size(); c++) {
+                    Chart chart = charts.get(c);
+                    json.beginObject().name("title").value(chart.name()).name("type").value(chart.type());
+                    json.name("traces").beginArray();
+                    for (int i = 0; i < traceLabels.get(c).length; i++) {
+                        Sequence sequence = chart.dataset().sequences().get(i);
+                        json.beginObject().name("name").value(sequence.label());
+                        json.name("labels").value(traceLabels.get(c)[i]);
+                        json.name("values").beginArray();
+                        for (Sample sample : sequence.samples()) {
+                            json.value(sample.value());
+                        }
+                        json.endArray().endObject();
+                        samples += sequence.samples().size();
+                    }
+                    json.endArray().endObject();
+                }
+                json.endArray();
+                out.write("""
+                        ;
+                            charts.forEach(function(chart) {
+                              var div = document.createElement("div");
+                              document.body.appendChild(div);
+                              var data = chart.traces.map(function(trace) {
+                                return chart.type === "pie"
+                                    ? { type: "pie", labels: labels[trace.labels], values: trace.values }
+                                    : { type: chart.type, name: trace.name, x: labels[trace.labels], y: trace.values };
+                              });
+                              Plotly.newPlot(div, data, { title: chart.title, width: 800, height: 600 });
+                            });
+                          </script>
+                        </body>
+                        </html>""");
+                phase.count("charts", charts.size()).count("labelArrays", labels.size()).count("samples", samples);
+            }
+            return filePath;
+        }
+    }
+
+    private static String escapeHtml(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    private record Chart(String name, String type, Dataset dataset) {
+    }
+}
@@ -0,0 +1,118 @@
+package com.github.phoswald.git.stats.charts;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Minimal streaming JSON emitter without any formatting. Strings are escaped such that the output can be embedded
+ * into an HTML script element.
+ */
+class JsonWriter {
+
+    private final Writer out;
+    private final Deque<Boolean> first = new ArrayDeque<>();
+    private boolean afterName;
+
+    JsonWriter(Writer out) {
+        this.out = out;
+    }
+
+    JsonWriter beginArray() throws IOException {
+        separate();
+        out.write('[');
+        first.push(true);
+        return this;
+    }
+
+    JsonWriter endArray() throws IOException {
+        first.pop();
+        out.write(']');
+        return this;
+    }
+
+    JsonWriter beginObject() throws IOException {
+        separate();
+        out.write('{');
+        first.push(true);
+        return this;
+    }
+
+    JsonWriter endObject() throws IOException {
+        first.pop();
+        out.write('}');
+        return this;
+    }
+
+    JsonWriter name(String name) throws IOException {
+        separate();
+        writeString(name);
+        out.write(':');
+        afterName = true;
+        return this;
+    }
+
+    JsonWriter value(String value) throws IOException {
+        separate();
+        if (value == null) {
+            out.write("null");
+        } else {
+            writeString(value);
+        }
+        return this;
+    }
+
+    JsonWriter value(long value) throws IOException {
+        separate();
+        out.write(Long.toString(value));
+        return this;
+    }
+
+    JsonWriter value(double value) throws IOException {
+        separate();
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            out.write("null");
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.write(Long.toString((long) value));
+        } else {
+            out.write(Double.toString(value));
+        }
+        return this;
+    }
+
+    private void separate() throws IOException {
+        if (afterName) {
+            afterName = false;
+        } else if (!first.isEmpty()) {
+            if (first.peek()) {
+                first.pop();
+                first.push(false);
+            } else {
+                out.write(',');
+            }
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.write("\\\"");
+                case '\\' -> out.write("\\\\");
+                case '\n' -> out.write("\\n");
+                case '\r' -> out.write("\\r");
+                case '\t' -> out.write("\\t");
+                default -> {
+                    if (c < 0x20 || c == '<' || c == '>' || c == '&' || c == '\u2028' || c == '\u2029') {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+                }
+            }
+        }
+        out.write('"');
+    }
+}
@@ -3,7 +3,7 @@ package com.github.phoswald.git.stats.charts;
 import com.github.phoswald.record.builder.RecordBuilder;
 
 @RecordBuilder
-public record PlotlyLayout( // must be public for JSON-B?
+public record PlotlyLayout( //
         String title, //
         Integer width, //
         Integer height //
@@ -5,12 +5,14 @@ import java.util.List;
 import com.github.phoswald.record.builder.RecordBuilder;
 
 @RecordBuilder
-public record PlotlyTrace( // must be public for JSON-B?
+public record PlotlyTrace( //
         String name, //
         String type, //
         List<String> labels, //
-        List<String> values, //
+        double[] values, //
         List<String> x, //
-        List<String> y //
+        double[] y, //
+        List<String> yLabels, // heatmap only: written as y instead of the values
+        double[][] z // heatmap only: one row per y, one column per x
 ) {
 }
@@ -0,0 +1,56 @@
+package com.github.phoswald.git.stats.metrics;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sums up the metrics of all phases by phase name.
+ */
+public class InMemoryMetrics implements MetricsListener {
+
+    private final Map<String, Totals> phases = new ConcurrentHashMap<>();
+
+    @Override
+    public void phaseCompleted(String phase, long durationNanos, long allocatedBytes, Map<String, Long> counters) {
+        phases.computeIfAbsent(phase, k -> new Totals()).add(durationNanos, allocatedBytes, counters);
+    }
+
+    public MetricsSnapshot snapshot() {
+        SortedMap<String, PhaseMetrics> result = new TreeMap<>();
+        phases.forEach((phase, totals) -> result.put(phase, totals.toMetrics()));
+        return new MetricsSnapshotBuilder().phases(result).build();
+    }
+
+    private static class Totals {
+        private long invocations;
+        private long totalNanos;
+        private long maxNanos;
+        private long allocatedBytes;
+        private final SortedMap<String, Long> counters = new TreeMap<>();
+
+        synchronized void add(long durationNanos, long allocatedBytes, Map<String, Long> counters) {
+            this.invocations++;
+            this.totalNanos += durationNanos;
+            this.maxNanos = Math.max(maxNanos, durationNanos);
+            this.allocatedBytes = allocatedBytes < 0 || this.allocatedBytes < 0 ? -1 : this.allocatedBytes + allocatedBytes;
+            counters.forEach((k, v) -> this.counters.merge(k, v, Long::sum));
+        }
+
+        synchronized PhaseMetrics toMetrics() {
+            SortedMap<String, Double> countersPerSecond = new TreeMap<>();
+            if (totalNanos > 0) {
+                counters.forEach((k, v) -> countersPerSecond.put(k, v * 1e9 / totalNanos));
+            }
+            return new PhaseMetricsBuilder() //
+                    .invocations(invocations) //
+                    .totalMillis(totalNanos / 1e6) //
+                    .maxMillis(maxNanos / 1e6) //
+                    .allocatedBytes(allocatedBytes) //
+                    .counters(new TreeMap<>(counters)) //
+                    .countersPerSecond(countersPerSecond) //
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.github.phoswald.git.stats.metrics;
+
+import java.util.Map;
+
+/**
+ * Receives the metrics of completed phases, must be thread-safe.
+ */
+public interface MetricsListener {
+
+    MetricsListener NONE = (phase, durationNanos, allocatedBytes, counters) -> { };
+
+    // allocatedBytes only covers the thread running the phase, -1 if not supported by the JVM
+    void phaseCompleted(String phase, long durationNanos, long allocatedBytes, Map<String, Long> counters);
+}
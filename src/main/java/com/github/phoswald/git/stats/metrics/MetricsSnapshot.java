@@ -0,0 +1,11 @@
+package com.github.phoswald.git.stats.metrics;
+
+import java.util.SortedMap;
+
+import com.github.phoswald.record.builder.RecordBuilder;
+
+@RecordBuilder
+public record MetricsSnapshot( //
+        SortedMap<String, PhaseMetrics> phases //
+) {
+}
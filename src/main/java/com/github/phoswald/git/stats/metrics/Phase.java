@@ -0,0 +1,61 @@
+package com.github.phoswald.git.stats.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Measures the duration and allocations of a phase and collects its counters, reports them when closed. Counters
+ * must be updated by the thread that started the phase.
+ */
+public final class Phase implements AutoCloseable {
+
+    private static final com.sun.management.ThreadMXBean threads = getThreadMXBean();
+    private static final Phase NONE = new Phase(MetricsListener.NONE, null);
+
+    private final MetricsListener listener;
+    private final String name;
+    private final long startNanos;
+    private final long startAllocatedBytes;
+    private final Map<String, Long> counters = new LinkedHashMap<>();
+
+    private Phase(MetricsListener listener, String name) {
+        this.listener = listener;
+        this.name = name;
+        this.startNanos = System.nanoTime();
+        this.startAllocatedBytes = getAllocatedBytes();
+    }
+
+    public static Phase start(MetricsListener listener, String name) {
+        return listener == MetricsListener.NONE ? NONE : new Phase(listener, name);
+    }
+
+    public Phase count(String counter, long delta) {
+        if (this != NONE) {
+            counters.merge(counter, delta, Long::sum);
+        }
+        return this;
+    }
+
+    @Override
+    public void close() {
+        if (this != NONE) {
+            long allocatedBytes = startAllocatedBytes < 0 ? -1 : getAllocatedBytes() - startAllocatedBytes;
+            listener.phaseCompleted(name, System.nanoTime() - startNanos, allocatedBytes, counters);
+        }
+    }
+
+    private static long getAllocatedBytes() {
+        return threads == null ? -1 : threads.getCurrentThreadAllocatedBytes();
+    }
+
+    private static com.sun.management.ThreadMXBean getThreadMXBean() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean sunThreads && sunThreads.isThreadAllocatedMemorySupported()
+                && sunThreads.isThreadAllocatedMemoryEnabled()) {
+            return sunThreads;
+        }
+        return null;
+    }
+}
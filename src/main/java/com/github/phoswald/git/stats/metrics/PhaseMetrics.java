@@ -0,0 +1,16 @@
+package com.github.phoswald.git.stats.metrics;
+
+import java.util.SortedMap;
+
+import com.github.phoswald.record.builder.RecordBuilder;
+
+@RecordBuilder
+public record PhaseMetrics( //
+        long invocations, //
+        double totalMillis, //
+        double maxMillis, //
+        long allocatedBytes, // estimate, see MetricsListener
+        SortedMap<String, Long> counters, //
+        SortedMap<String, Double> countersPerSecond //
+) {
+}
@@ -0,0 +1,65 @@
+package com.github.phoswald.git.stats.server;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of serialized results, bounded by the total number of bytes. Every entry remembers the commit id the
+ * revision resolved to, so an entry is only returned as long as the ref has not moved.
+ */
+class ResultCache {
+
+    private final long maxBytes;
+    private final Map<Query, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hitCount;
+    private long missCount;
+
+    ResultCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    synchronized byte[] get(Query query, String commitId) {
+        Entry entry = entries.get(query);
+        if (entry == null || !entry.commitId().equals(commitId)) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return entry.json();
+    }
+
+    // like get(), but not counted as hit or miss
+    synchronized byte[] peek(Query query, String commitId) {
+        Entry entry = entries.get(query);
+        return entry != null && entry.commitId().equals(commitId) ? entry.json() : null;
+    }
+
+    synchronized void put(Query query, String commitId, byte[] json) {
+        Entry previous = entries.put(query, new Entry(commitId, json));
+        if (previous != null) {
+            bytes -= previous.json().length;
+        }
+        bytes += json.length;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            bytes -= iterator.next().json().length;
+            iterator.remove();
+        }
+    }
+
+    synchronized long hitCount() {
+        return hitCount;
+    }
+
+    synchronized long missCount() {
+        return missCount;
+    }
+
+    record Query(String repo, String kind, String revision, String file) {
+    }
+
+    private record Entry(String commitId, byte[] json) {
+    }
+}
@@ -0,0 +1,241 @@
+package com.github.phoswald.git.stats.server;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.eclipse.jgit.errors.AmbiguousObjectException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.phoswald.git.stats.GitStats;
+import com.github.phoswald.git.stats.HistoryOptionsBuilder;
+import com.github.phoswald.git.stats.server.ResultCache.Query;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+
+/**
+ * Embedded HTTP server answering JSON queries for statistics of registered repositories.
+ * <p>
+ * Requests have the form {@code GET /<repo>/<history|commit|blame>?revision=<revision>&file=<path>}, where revision
+ * defaults to HEAD and file is only used for blame (all files if missing). A {@link GitStats} is kept open per
+ * repository and calculates for one request at a time, cached results are returned without waiting for it. Only the
+ * most recently used repositories are kept open, the others are closed as soon as no request uses them. Results
+ * are cached as JSON until their revision resolves to another commit. Malformed revisions and paths are answered with
+ * 400, unknown revisions and files with 404.
+ */
+public class StatsServer implements AutoCloseable {
+
+    private static final Jsonb json = JsonbBuilder.create();
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final Path outputPath;
+    private final Map<String, Path> repoPaths = new ConcurrentHashMap<>();
+    private final Map<String, OpenRepo> repos = new LinkedHashMap<>(16, 0.75f, true); // guarded by itself
+    private final int maxOpenRepos;
+    private final ResultCache cache;
+    private final ExecutorService executor;
+    private final HttpServer server;
+
+    public StatsServer(InetSocketAddress address, Path outputPath, int threads, int maxOpenRepos, long maxCacheBytes)
+            throws IOException {
+        this.outputPath = outputPath;
+        this.maxOpenRepos = maxOpenRepos;
+        this.cache = new ResultCache(maxCacheBytes);
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public void register(String name, Path repoPath) {
+        repoPaths.put(name, repoPath);
+    }
+
+    public void start() {
+        server.start();
+        logger.info("Listening on port {}", getPort());
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public long getCacheHitCount() {
+        return cache.hitCount();
+    }
+
+    public long getCacheMissCount() {
+        return cache.missCount();
+    }
+
+    public int getOpenRepoCount() {
+        synchronized (repos) {
+            return repos.size();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+        synchronized (repos) {
+            for (OpenRepo repo : repos.values()) {
+                synchronized (repo.stats) {
+                    repo.stats.close();
+                }
+            }
+            repos.clear();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String[] segments = exchange.getRequestURI().getPath().split("/");
+            Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+            if (!exchange.getRequestMethod().equals("GET") || segments.length != 3) {
+                sendError(exchange, 404, "Not found");
+                return;
+            }
+            Path repoPath = repoPaths.get(segments[1]);
+            if (repoPath == null) {
+                sendError(exchange, 404, "Unknown repository: " + segments[1]);
+                return;
+            }
+            Query query = new Query(segments[1], segments[2], params.getOrDefault("revision", "HEAD"),
+                    segments[2].equals("blame") ? params.get("file") : null);
+            if (!query.kind().equals("history") && !query.kind().equals("commit") && !query.kind().equals("blame")) {
+                sendError(exchange, 404, "Unknown statistics: " + query.kind());
+                return;
+            }
+            try {
+                send(exchange, 200, query(query, repoPath));
+            } catch (FileNotFoundException e) {
+                sendError(exchange, 404, e.getMessage());
+            } catch (IllegalArgumentException | AmbiguousObjectException e) {
+                // malformed revision (RevisionSyntaxException) or path (InvalidPathException and PathFilter)
+                sendError(exchange, 400, e.getMessage());
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Failed to answer {}", exchange.getRequestURI(), e);
+                sendError(exchange, 500, e.getMessage());
+            }
+        }
+    }
+
+    private byte[] query(Query query, Path repoPath) throws IOException {
+        OpenRepo repo = acquire(query.repo(), repoPath);
+        try {
+            return query(query, repo.stats);
+        } finally {
+            release(repo);
+        }
+    }
+
+    private byte[] query(Query query, GitStats stats) throws IOException {
+        // resolving is cheap and thread-safe, a cached result is only valid while the ref points to the same commit
+        String commitId = stats.resolveRevision(query.revision());
+        byte[] result = cache.get(query, commitId);
+        if (result != null) {
+            return result;
+        }
+        synchronized (stats) {
+            // the same query may have been answered while waiting
+            result = cache.peek(query, commitId);
+            if (result == null) {
+                Object value = switch (query.kind()) {
+                    case "history" -> stats.calculateHistoryStatistics(commitId, new HistoryOptionsBuilder().build());
+                    case "commit" -> stats.calculateCommitStatistics(commitId);
+                    default -> query.file() != null //
+                            ? stats.calculateBlameStatistics(commitId, Path.of(query.file())) //
+                            : stats.calculateBlameStatistics(commitId, file -> { });
+                };
+                result = json.toJson(value).getBytes(UTF_8);
+                cache.put(query, commitId, result);
+            }
+            return result;
+        }
+    }
+
+    private OpenRepo acquire(String name, Path repoPath) throws IOException {
+        synchronized (repos) {
+            OpenRepo repo = repos.get(name);
+            if (repo == null) {
+                repo = new OpenRepo(new GitStats(repoPath, outputPath.resolve(name)));
+                repos.put(name, repo);
+            }
+            repo.users++;
+            closeIdleRepos();
+            return repo;
+        }
+    }
+
+    private void release(OpenRepo repo) {
+        synchronized (repos) {
+            repo.users--;
+            closeIdleRepos();
+        }
+    }
+
+    // least recently used first, repositories in use are only closed after their last request
+    private void closeIdleRepos() {
+        Iterator<OpenRepo> iterator = repos.values().iterator();
+        while (repos.size() > maxOpenRepos && iterator.hasNext()) {
+            OpenRepo repo = iterator.next();
+            if (repo.users == 0) {
+                iterator.remove();
+                repo.stats.close();
+            }
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query != null) {
+            for (String param : query.split("&")) {
+                int index = param.indexOf('=');
+                if (index > 0) {
+                    params.put(URLDecoder.decode(param.substring(0, index), UTF_8),
+                            URLDecoder.decode(param.substring(index + 1), UTF_8));
+                }
+            }
+        }
+        return params;
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        send(exchange, status, json.toJson(Map.of("error", String.valueOf(message))).getBytes(UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    // an open repository and the number of requests using it, guarded by the map of open repositories
+    private static class OpenRepo {
+        private final GitStats stats;
+        private int users;
+
+        OpenRepo(GitStats stats) {
+            this.stats = stats;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.github.phoswald.git.reports;
+
+import static com.github.phoswald.git.reports.Dataset.dataset;
+import static com.github.phoswald.git.reports.Sample.sample;
+import static com.github.phoswald.git.reports.Sequence.sequence;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class DatasetTest {
+
+    @Test
+    void dataset_topCount_withOthers() {
+        var map = Map.of( //
+                "a", Map.of("2021", 1L, "2022", 1L), //
+                "b", Map.of("2021", 5L), //
+                "c", Map.of("2022", 4L), //
+                "d", Map.of("2021", 1L, "2023", 2L));
+
+        var dataset = dataset(null, map, 2);
+
+        assertThat(dataset.sequences(), contains( //
+                sequence("b", sample("2021", 5)), //
+                sequence("c", sample("2022", 4)), //
+                sequence("others (2)", sample("2021", 2), sample("2022", 1), sample("2023", 2))));
+    }
+}
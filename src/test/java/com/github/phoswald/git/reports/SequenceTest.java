@@ -0,0 +1,48 @@
+package com.github.phoswald.git.reports;
+
+import static com.github.phoswald.git.reports.Sample.sample;
+import static com.github.phoswald.git.reports.Sequence.sequence;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.Test;
+
+class SequenceTest {
+
+    @Test
+    void topSamples_longSequence_sortedWithOthers() {
+        var seq = sequence(null, sample("a", 3), sample("b", 5), sample("c", 1), sample("d", 5), sample("e", 2));
+
+        assertThat(seq.topSamples(3).samples(), contains( //
+                sample("b", 5), sample("d", 5), sample("a", 3), sample("others (2)", 3)));
+        assertThat(seq.topSamples(5).samples().size(), equalTo(5));
+        assertThat(seq.topValues(2), containsInAnyOrder("b", "d"));
+    }
+
+    @Test
+    void downsample_shortSequence_unchanged() {
+        var seq = sequence(null, sample(1, 1), sample(2, 2), sample(3, 4));
+        assertThat(seq.downsample(10), sameInstance(seq));
+    }
+
+    @Test
+    void downsample_longSequence_keepsEndsAndPeak() {
+        var samples = new ArrayList<Sample>();
+        for (int i = 0; i < 10000; i++) {
+            samples.add(sample(i, i == 4321 ? 1000 : i % 7));
+        }
+        var seq = new Sequence("Series", samples).downsample(100);
+
+        assertThat(seq.label(), equalTo("Series"));
+        assertThat(seq.samples().size(), equalTo(100));
+        assertThat(seq.samples().get(0), equalTo(samples.get(0)));
+        assertThat(seq.samples().get(99), equalTo(samples.get(9999)));
+        assertThat(seq.samples(), hasItem(samples.get(4321)));
+    }
+}
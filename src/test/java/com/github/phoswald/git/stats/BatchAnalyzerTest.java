@@ -0,0 +1,37 @@
+package com.github.phoswald.git.stats;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class BatchAnalyzerTest {
+
+    private final BatchAnalyzer testee = new BatchAnalyzer(Paths.get("target/batch"), 2, false);
+
+    @Test
+    void analyze_validAndInvalidJobs_success() throws IOException {
+        BatchStatistics stats = testee.analyze(List.of( //
+                new BatchJob("guava-1", Paths.get("src/test/resources/it/guava.git"), "v31.1"), //
+                new BatchJob("guava-2", Paths.get("src/test/resources/it/guava.git"), "v31.1"), //
+                new BatchJob("missing", Paths.get("src/test/resources/it/missing.git"), "main")));
+
+        assertThat(stats.results().size(), equalTo(3));
+        assertThat(stats.results().get(0).failure(), nullValue());
+        assertThat(stats.results().get(0).history().commitCount(), equalTo(5752));
+        assertThat(stats.results().get(0).commit().fileCount(), equalTo(3107));
+        assertThat(stats.results().get(0).blame(), nullValue());
+        assertThat(stats.results().get(0).reports().size(), equalTo(6));
+        assertThat(stats.results().get(1).failure(), nullValue());
+        assertThat(stats.results().get(2).failure(), notNullValue());
+        assertThat(stats.history().commitCount(), equalTo(2 * 5752));
+        assertThat(stats.history().commitCountByAuthor().size(), equalTo(448));
+        assertThat(stats.reports().size(), equalTo(6));
+    }
+}
@@ -0,0 +1,145 @@
+package com.github.phoswald.git.stats;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.MergeResult;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BlameCacheTest {
+
+    @TempDir
+    private Path repoPath;
+
+    private Git git;
+    private BlameCache testee;
+
+    @BeforeEach
+    void open() throws GitAPIException {
+        git = Git.init().setDirectory(repoPath.toFile()).setInitialBranch("main").call();
+        testee = new BlameCache(git.getRepository());
+    }
+
+    @AfterEach
+    void close() {
+        git.close();
+    }
+
+    @Test
+    void blame_afterRevertedChange_changeOfRevertCounted() throws Exception {
+        ObjectId c1 = commit("A", "one\ntwo\nthree\n");
+        commit("B", "one\nTWO\nthree\n");
+        ObjectId c3 = commit("C", "one\ntwo\nthree\n");
+
+        assertThat(blame(c1), equalTo(Map.of("A", 3)));
+        assertThat(blame(c3), equalTo(Map.of("A", 2, "C", 1)));
+    }
+
+    @Test
+    void blame_reverseOrder_noLaterCommits() throws Exception {
+        ObjectId c1 = commit("A", "one\ntwo\nthree\n");
+        commit("B", "one\nTWO\nthree\n");
+        ObjectId c3 = commit("C", "one\ntwo\nthree\n");
+
+        assertThat(blame(c3), equalTo(Map.of("A", 2, "C", 1)));
+        assertThat(blame(c1), equalTo(Map.of("A", 3)));
+    }
+
+    @Test
+    void blame_descendants_sameAsFreshBlame() throws Exception {
+        ObjectId c1 = commit("A", "one\ntwo\nthree\nfour\n");
+        commit("B", "zero\none\ntwo\nthree\nfour\n");
+        commit("C", "zero\none\nthree\nfour\nfive\n");
+        ObjectId c4 = commit("A", "zero\none\nthree\nFOUR\nfive\n");
+        ObjectId c5 = commit("D", "zero\none\nthree\nFOUR\nfive\nsix\n");
+
+        blame(c1);
+        assertThat(blame(c4), equalTo(freshBlame(c4)));
+        assertThat(blame(c5), equalTo(freshBlame(c5)));
+        assertThat(blame(c5), equalTo(Map.of("A", 2, "A2", 1, "B", 1, "C", 1, "D", 1)));
+    }
+
+    @Test
+    void blame_otherBranchAndMerge_sameAsFreshBlame() throws Exception {
+        ObjectId c1 = commit("A", "one\ntwo\nthree\n");
+        git.branchCreate().setName("side").call();
+        ObjectId c2 = commit("B", "one\ntwo\nthree\nfour\n");
+        git.checkout().setName("side").call();
+        ObjectId side = commit("C", "zero\none\ntwo\nthree\n");
+        git.checkout().setName("main").call();
+        MergeResult merge = git.merge().include(side).setMessage("Merge").call();
+        ObjectId merged = merge.getNewHead();
+
+        assertThat(blame(c2), equalTo(Map.of("A", 3, "B", 1)));
+        assertThat(blame(side), equalTo(Map.of("A", 3, "C", 1)));
+        assertThat(blame(merged), equalTo(freshBlame(merged)));
+        assertThat(blame(merged), equalTo(Map.of("A", 3, "B", 1, "C", 1)));
+        assertThat(blame(c1), equalTo(Map.of("A", 3)));
+    }
+
+    @Test
+    void blame_evicted_blamedFromScratch() throws Exception {
+        BlameCache testee = new BlameCache(git.getRepository(), 5);
+        ObjectId c1 = commit("other.txt", "A", "x\ny\nz\n");
+        ObjectId c2 = commit("A", "one\ntwo\nthree\n");
+        ObjectId c3 = commit("B", "one\nTWO\nthree\n");
+        ObjectId c4 = commit("C", "one\nTWO\nTHREE\n");
+
+        testee.blame(c2, "file.txt");
+        testee.blame(c3, "file.txt");
+        assertThat(testee.blameCount(), equalTo(1L)); // replayed
+
+        testee.blame(c1, "other.txt"); // 6 lines evict file.txt
+        assertThat(countByAuthor(testee.blame(c4, "file.txt")), equalTo(Map.of("A", 1, "B", 1, "C", 1)));
+        assertThat(testee.blameCount(), equalTo(3L));
+    }
+
+    private Map<String, Integer> blame(ObjectId revision) throws IOException {
+        return countByAuthor(testee.blame(revision, "file.txt"));
+    }
+
+    private Map<String, Integer> freshBlame(ObjectId revision) throws IOException {
+        return countByAuthor(new BlameCache(git.getRepository()).blame(revision, "file.txt"));
+    }
+
+    // by author, with a suffix for every further commit of the same author
+    private static Map<String, Integer> countByAuthor(RevCommit[] lineCommits) {
+        Map<ObjectId, String> names = new TreeMap<>();
+        Map<String, Integer> result = new TreeMap<>();
+        for (RevCommit commit : lineCommits) {
+            String name = names.computeIfAbsent(commit, k -> {
+                String author = commit.getAuthorIdent().getName();
+                long earlier = names.values().stream().filter(n -> n.startsWith(author)).count();
+                return earlier == 0 ? author : author + (earlier + 1);
+            });
+            result.merge(name, 1, Integer::sum);
+        }
+        return result;
+    }
+
+    private ObjectId commit(String author, String content) throws IOException, GitAPIException {
+        return commit("file.txt", author, content);
+    }
+
+    private ObjectId commit(String file, String author, String content) throws IOException, GitAPIException {
+        Files.writeString(repoPath.resolve(file), content, UTF_8);
+        git.add().addFilepattern(file).call();
+        PersonIdent ident = new PersonIdent(author, author.toLowerCase() + "@example.com");
+        return git.commit().setAuthor(ident).setCommitter(ident).setMessage("Change by " + author).call();
+    }
+}
@@ -0,0 +1,73 @@
+package com.github.phoswald.git.stats;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.phoswald.git.stats.CommitTable.Dimension;
+import com.github.phoswald.git.stats.CommitTable.Measure;
+
+class CommitTableTest {
+
+    private final CommitTable testee = CommitTable.of(List.of( //
+            commit("2021-12-31T23:30:00Z", "alice", "fix: typo"), // Friday
+            commit("2022-01-01T10:00:00Z", "bob", "feat(api)!: new endpoint"), // Saturday
+            commit("2022-01-03T10:15:00Z", "alice", "Update README"), // Monday
+            commit("2022-02-07T08:00:00Z", "alice", "fix(parser): null check"))); // Monday
+
+    @Test
+    void aggregate_oneDimension_success() {
+        assertThat(testee.aggregate(Measure.COMMITS, Dimension.AUTHOR_NAME), equalTo(Map.of("alice", 3L, "bob", 1L)));
+        assertThat(testee.aggregate(Measure.COMMITS, Dimension.MONTH),
+                equalTo(Map.of("2021-12", 1L, "2022-01", 2L, "2022-02", 1L)));
+        assertThat(testee.aggregate(Measure.COMMITS, Dimension.WEEKDAY),
+                equalTo(Map.of("1-Mon", 2L, "5-Fri", 1L, "6-Sat", 1L)));
+        assertThat(testee.aggregate(Measure.COMMITS, Dimension.HOUR),
+                equalTo(Map.of("08", 1L, "10", 2L, "23", 1L)));
+        assertThat(testee.aggregate(Measure.COMMITS, Dimension.TYPE),
+                equalTo(Map.of("fix", 2L, "feat", 1L, "other", 1L)));
+    }
+
+    @Test
+    void aggregate_twoDimensions_success() {
+        assertThat(testee.aggregate(Measure.COMMITS, Dimension.AUTHOR_EMAIL, Dimension.YEAR), equalTo(Map.of( //
+                "alice@example.com", Map.of("2021", 1L, "2022", 2L), //
+                "bob@example.com", Map.of("2022", 1L))));
+    }
+
+    @Test
+    void groupBy_threeDimensions_success() {
+        assertThat(testee.groupBy(Measure.COMMITS, Dimension.AUTHOR_NAME, Dimension.YEAR, Dimension.TYPE),
+                equalTo(Map.of( //
+                        List.of("alice", "2021", "fix"), 1L, //
+                        List.of("alice", "2022", "other"), 1L, //
+                        List.of("alice", "2022", "fix"), 1L, //
+                        List.of("bob", "2022", "feat"), 1L)));
+    }
+
+    @Test
+    void aggregate_churn_sum() {
+        CommitTable table = CommitTable.ofChurn(List.of( //
+                new CommitChurnBuilder().commit(commit("2022-01-01T10:00:00Z", "alice", "a")) //
+                        .linesAdded(10).linesRemoved(2).build(), //
+                new CommitChurnBuilder().commit(commit("2022-01-02T10:00:00Z", "alice", "b")) //
+                        .linesAdded(5).linesRemoved(0).build()));
+
+        assertThat(table.aggregate(Measure.LINES_ADDED, Dimension.AUTHOR_NAME), equalTo(Map.of("alice", 15L)));
+        assertThat(table.aggregate(Measure.LINES_REMOVED, Dimension.WEEKDAY), equalTo(Map.of("6-Sat", 2L)));
+    }
+
+    private static CommitInfo commit(String timestamp, String name, String message) {
+        return new CommitInfoBuilder() //
+                .hash(name + timestamp) //
+                .timestamp(Instant.parse(timestamp)) //
+                .author(new UserBuilder().name(name).email(name + "@example.com").build()) //
+                .message(message) //
+                .build();
+    }
+}
@@ -2,21 +2,57 @@ package com.github.phoswald.git.stats;
 
 import static java.time.ZoneOffset.UTC;
 import static java.util.stream.Collectors.summingInt;
+import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.Matchers.startsWith;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Instant;
 import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collector;
 
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.github.phoswald.git.stats.metrics.InMemoryMetrics;
+import com.github.phoswald.git.stats.metrics.MetricsSnapshot;
 
 class GitStatsTest {
 
@@ -45,7 +81,7 @@ class GitStatsTest {
         assertThat(stats.commit().author().email(), equalTo("cpovirk@google.com"));
         assertThat(stats.commit().message(), equalTo("Bump deps."));
         assertThat(stats.fileCount(), equalTo(3239));
-        assertThat(stats.lineCount(), equalTo(0)); // TODO: calc line count
+        assertThat(stats.lineCount(), equalTo(countLines("822125f9ee7a71c830f1383e9e5a8663414d8f48")));
     }
 
     @Test
@@ -61,7 +97,18 @@ class GitStatsTest {
         assertThat(stats.commit().author().email(), equalTo("cpovirk@google.com"));
         assertThat(stats.commit().message(), equalTo("Set version number for guava-parent to 31.1."));
         assertThat(stats.fileCount(), equalTo(3107));
-        assertThat(stats.lineCount(), equalTo(0)); // TODO: calc line count
+        assertThat(stats.lineCount(), equalTo(countLines("v31.1")));
+    }
+
+    @Test
+    void calculateCommitStatistics_manyRevisions_sameResult() throws IOException {
+        List<String> revisions = List.of("v30.0", "v31.1", "822125f9ee7a71c830f1383e9e5a8663414d8f48", "v31.0");
+        List<CommitStatistics> stats = testee.calculateCommitStatistics(revisions);
+
+        assertThat(stats.size(), equalTo(4));
+        for (int i = 0; i < revisions.size(); i++) {
+            assertThat(stats.get(i), equalTo(testee.calculateCommitStatistics(revisions.get(i))));
+        }
     }
 
     @Test
@@ -80,6 +127,124 @@ class GitStatsTest {
         assertThat(stats.lineCountByDate().values().stream().collect(toSum()), equalTo(46));
     }
 
+    @Test
+    void calculateBlameStatistics_afterPreviousRevision_sameResult() throws IOException {
+        Path file = Path.of("guava/src/com/google/common/collect/Maps.java");
+        testee.calculateBlameStatistics("v31.1", file);
+        BlameStatistics stats = testee.calculateBlameStatistics("822125f9ee7a71c830f1383e9e5a8663414d8f48", file);
+        BlameStatistics expected;
+        try (GitStats other = new GitStats(Paths.get("src/test/resources/it/guava.git"), Paths.get("target/reports"))) {
+            expected = other.calculateBlameStatistics("822125f9ee7a71c830f1383e9e5a8663414d8f48", file);
+        }
+
+        assertThat(stats, equalTo(expected));
+    }
+
+    @Test
+    void calculateBlameStatistics_beforeLaterRevision_sameResult() throws IOException {
+        Path file = Path.of("guava/src/com/google/common/collect/Maps.java");
+        testee.calculateBlameStatistics("822125f9ee7a71c830f1383e9e5a8663414d8f48", file);
+        BlameStatistics stats = testee.calculateBlameStatistics("v31.1", file);
+        BlameStatistics expected;
+        try (GitStats other = new GitStats(Paths.get("src/test/resources/it/guava.git"), Paths.get("target/reports"))) {
+            expected = other.calculateBlameStatistics("v31.1", file);
+        }
+
+        assertThat(stats, equalTo(expected));
+    }
+
+    @Test
+    void calculateBlameStatistics_streaming_sameResult() throws IOException {
+        Path file = Path.of("guava/src/com/google/common/collect/Maps.java");
+        BlameOptions streaming = new BlameOptionsBuilder().streaming(true).build();
+        BlameStatistics stats = testee.calculateBlameStatistics("822125f9ee7a71c830f1383e9e5a8663414d8f48", file, streaming);
+        BlameStatistics expected = testee.calculateBlameStatistics("822125f9ee7a71c830f1383e9e5a8663414d8f48", file);
+
+        assertThat(stats, equalTo(expected));
+    }
+
+    @Test
+    void calculateBlameStatistics_streamingMaxLines_largeFileSkipped() throws IOException {
+        BlameOptions options = new BlameOptionsBuilder().streaming(true).maxLines(100).build();
+        BlameStatistics small = testee.calculateBlameStatistics("822125f9ee7a71c830f1383e9e5a8663414d8f48",
+                Path.of("guava/src/com/google/common/annotations/Beta.java"), options);
+        BlameStatistics large = testee.calculateBlameStatistics("822125f9ee7a71c830f1383e9e5a8663414d8f48",
+                Path.of("guava/src/com/google/common/collect/Maps.java"), options);
+
+        assertThat(small.lineCount(), equalTo(46));
+        assertThat(small.lineCountByAuthor().values().stream().collect(toSum()), equalTo(46));
+        assertThat(large.lineCount(), equalTo(0));
+        assertThat(large.lineCountByAuthor().size(), equalTo(0));
+        assertThat(large.lineCountByDate().size(), equalTo(0));
+    }
+
+    @Test
+    void calculateBlameStatistics_allFiles_success() throws IOException {
+        List<BlameStatistics> files = new ArrayList<>();
+        BlameStatistics stats = testee.calculateBlameStatistics("822125f9ee7a71c830f1383e9e5a8663414d8f48", files::add);
+
+        assertThat(stats.repo(), equalTo("src/test/resources/it/guava.git"));
+        assertThat(stats.revision(), equalTo("822125f9ee7a71c830f1383e9e5a8663414d8f48"));
+        assertThat(stats.file(), nullValue());
+        assertThat(files.stream().collect(toMap(BlameStatistics::file, BlameStatistics::lineCount)),
+                equalTo(lineCountByFile("822125f9ee7a71c830f1383e9e5a8663414d8f48"))); // text files only
+        assertThat(files.stream().collect(summingInt(BlameStatistics::lineCount)), equalTo(stats.lineCount()));
+        assertThat(stats.lineCount(),
+                equalTo(testee.calculateCommitStatistics("822125f9ee7a71c830f1383e9e5a8663414d8f48").lineCount()));
+        assertThat(stats.lineCountByAuthor().values().stream().collect(toSum()), equalTo(stats.lineCount()));
+        assertThat(stats.lineCountByDate().values().stream().collect(toSum()), equalTo(stats.lineCount()));
+
+        BlameStatistics file = files.stream() //
+                .filter(f -> f.file().equals("guava/src/com/google/common/annotations/Beta.java")) //
+                .findFirst().get();
+        BlameStatistics expected = testee.calculateBlameStatistics("822125f9ee7a71c830f1383e9e5a8663414d8f48",
+                Path.of("guava/src/com/google/common/annotations/Beta.java"));
+        assertThat(file.lineCountByAuthor(), equalTo(expected.lineCountByAuthor()));
+        assertThat(file.lineCountByDate(), equalTo(expected.lineCountByDate()));
+    }
+
+    @Test
+    void calculateBlameStatistics_sampled_reproducible() throws IOException {
+        BlameOptions sampled = new BlameOptionsBuilder().streaming(true).sampleSize(100).seed(42).build();
+        List<BlameStatistics> files = new ArrayList<>();
+        BlameStatistics stats = testee.calculateBlameStatistics("822125f9ee7a71c830f1383e9e5a8663414d8f48", sampled,
+                files::add);
+        BlameStatistics again = testee.calculateBlameStatistics("822125f9ee7a71c830f1383e9e5a8663414d8f48", sampled,
+                file -> { });
+
+        assertThat(files.size(), lessThan(200));
+        assertThat(stats.lineCount(), greaterThan(0));
+        assertThat(stats.lineCountErrorByAuthor().keySet(), equalTo(stats.lineCountByAuthor().keySet()));
+        assertThat(stats.lineCountErrorByDate().keySet(), equalTo(stats.lineCountByDate().keySet()));
+        assertThat(again, equalTo(stats));
+    }
+
+    @Test
+    void calculateBlameStatistics_sampled_nearExactResult() throws IOException {
+        BlameOptions sampled = new BlameOptionsBuilder().streaming(true).sampleSize(300).seed(42).build();
+        BlameStatistics stats = testee.calculateBlameStatistics("822125f9ee7a71c830f1383e9e5a8663414d8f48", sampled,
+                file -> { });
+        BlameStatistics exact = testee.calculateBlameStatistics("822125f9ee7a71c830f1383e9e5a8663414d8f48",
+                file -> { });
+
+        // the estimates add up to the exact total, up to rounding
+        assertThat(stats.lineCount(), equalTo(exact.lineCount()));
+        long estimated = stats.lineCountByAuthor().values().stream().mapToLong(Long::longValue).sum();
+        assertThat(Math.abs(estimated - stats.lineCount()), lessThanOrEqualTo((long) stats.lineCountByAuthor().size()));
+
+        // the exact counts of most of the top authors are within their 95% confidence interval
+        List<User> topAuthors = exact.lineCountByAuthor().entrySet().stream() //
+                .sorted(Map.Entry.<User, Long>comparingByValue().reversed()) //
+                .limit(10) //
+                .map(Map.Entry::getKey) //
+                .toList();
+        long within = topAuthors.stream() //
+                .filter(author -> Math.abs(stats.lineCountByAuthor().getOrDefault(author, 0L)
+                        - exact.lineCountByAuthor().get(author)) <= stats.lineCountErrorByAuthor().getOrDefault(author, 0L)) //
+                .count();
+        assertThat(within, greaterThanOrEqualTo(8L));
+    }
+
     @Test
     void calculateHistoryStatistics_releaseTag_success() throws IOException {
         HistoryStatistics stats = testee.calculateHistoryStatistics("v31.1");
@@ -95,6 +260,178 @@ class GitStatsTest {
         assertValidCharts(files, 6);
     }
 
+    @Test
+    void calculateHistoryStatistics_withoutCommits_success() throws Exception {
+        HistoryStatistics stats = testee.calculateHistoryStatistics("v31.1", new HistoryOptionsBuilder().build());
+
+        assertThat(stats.commitCount(), equalTo(5752));
+        assertThat(stats.commitCountByAuthor().size(), equalTo(448));
+        assertThat(stats.commitCountByDate().size(), equalTo(1637));
+        assertThat(stats.commitCountByYear().values().stream().collect(toSum()), equalTo(5752));
+        assertThat(stats.commitCountByMonth().values().stream().collect(toSum()), equalTo(5752));
+        assertThat(stats.commitCountByAuthorAndYear().size(), equalTo(448));
+        assertThat(stats.commitCountByAuthorAndMonth().size(), equalTo(448));
+        assertThat(stats.authorCountByMonth(), equalTo(authorCountByMonth("v31.1")));
+        assertThat(stats.commits(), nullValue());
+
+        List<Path> files = testee.generateHistoryReport(stats);
+        assertValidCharts(files, 6);
+    }
+
+    @Test
+    void calculateHistoryStatistics_parallel_sameResult(@TempDir Path outputPath) throws IOException {
+        HistoryStatistics expected = testee.calculateHistoryStatistics("v31.1", new HistoryOptionsBuilder().build());
+        HistoryStatistics stats;
+        try (GitStats other = new GitStats(Paths.get("src/test/resources/it/guava.git"), outputPath, 4)) {
+            stats = other.calculateHistoryStatistics("v31.1", new HistoryOptionsBuilder().parallel(true).build());
+        }
+
+        assertThat(Files.exists(outputPath.resolve("history.idx")), equalTo(true)); // built by the parallel walk
+        assertThat(HistoryIndex.load(outputPath.resolve("history.idx")).size(), equalTo(expected.commitCount()));
+        assertThat(stats, equalTo(expected));
+    }
+
+    @Test
+    void calculateHistoryStatistics_filtered_success() throws Exception {
+        Instant since = OffsetDateTime.of(2015, 1, 1, 0, 0, 0, 0, UTC).toInstant();
+        HistoryOptions options = new HistoryOptionsBuilder() //
+                .paths(List.of("guava/src/com/google/common/annotations")) //
+                .since(since) //
+                .build();
+        HistoryStatistics stats = testee.calculateHistoryStatistics("v31.1", options);
+
+        // like 'git log --since=2015-01-01 v31.1 -- <path>', the date filtered after the walk
+        int expected = 0;
+        try (Git git = Git.open(new File("src/test/resources/it/guava.git"))) {
+            for (RevCommit commit : git.log().add(git.getRepository().resolve("v31.1")) //
+                    .addPath("guava/src/com/google/common/annotations").call()) {
+                if (commit.getCommitTime() >= since.getEpochSecond()) {
+                    expected++;
+                }
+            }
+        }
+        assertThat(stats.commitCount(), equalTo(expected));
+        assertThat(stats.commitCount(), greaterThan(0));
+        assertThat(stats.commitCountByAuthor().values().stream().collect(toSum()), equalTo(stats.commitCount()));
+        assertThat(stats.commitCountByYear().firstKey().getValue(), greaterThanOrEqualTo(2015));
+    }
+
+    @Test
+    void calculatePathHistoryStatistics_releaseTag_success() throws IOException {
+        HistoryStatistics stats = testee.calculatePathHistoryStatistics("v31.1",
+                Paths.get("guava/src/com/google/common/annotations"));
+
+        assertThat(stats.commitCount(), greaterThan(0));
+        assertThat(stats.commitCount(), lessThan(5752));
+        assertThat(stats.commits().size(), equalTo(stats.commitCount()));
+        assertThat(stats.commitCountByAuthor().values().stream().collect(toSum()), equalTo(stats.commitCount()));
+    }
+
+    @Test
+    void calculatePathHistoryStatistics_freshAndUpdatedIndex_sameAsUnfilteredWalk(@TempDir Path outputPath)
+            throws IOException {
+        Path directory = Paths.get("guava/src/com/google/common/annotations");
+        Path file = Paths.get("guava/src/com/google/common/collect/Maps.java");
+        try (GitStats other = new GitStats(Paths.get("src/test/resources/it/guava.git"), outputPath)) {
+            assertThat(commitHashes(other.calculatePathHistoryStatistics("v31.0", directory)),
+                    equalTo(findCommits("v31.0", directory)));
+            // the index is updated with the commits between the releases
+            assertThat(commitHashes(other.calculatePathHistoryStatistics("v31.1", directory)),
+                    equalTo(findCommits("v31.1", directory)));
+            assertThat(commitHashes(other.calculatePathHistoryStatistics("v31.1", file)),
+                    equalTo(findCommits("v31.1", file)));
+        }
+        try (GitStats other = new GitStats(Paths.get("src/test/resources/it/guava.git"), outputPath)) {
+            assertThat(commitHashes(other.calculatePathHistoryStatistics("822125f9ee7a71c830f1383e9e5a8663414d8f48",
+                    file)), equalTo(findCommits("822125f9ee7a71c830f1383e9e5a8663414d8f48", file)));
+        }
+    }
+
+    @Test
+    void calculateChurnStatistics_releaseTag_success() throws IOException {
+        ChurnStatistics stats = testee.calculateChurnStatistics("v31.1");
+        Map<String, Churn> expected = churnByCommit("v31.1");
+
+        assertThat(stats.commitCount(), equalTo(expected.size()));
+        assertThat(stats.commits().size(), equalTo(stats.commitCount()));
+        assertThat(stats.commits().stream().collect(toMap(churn -> churn.commit().hash(),
+                churn -> new Churn(churn.linesAdded(), churn.linesRemoved()))), equalTo(expected));
+        assertThat(stats.linesAdded(), greaterThan(stats.linesRemoved()));
+        assertThat(stats.churnByAuthor().values().stream().reduce(Churn::plus).get(),
+                equalTo(new Churn(stats.linesAdded(), stats.linesRemoved())));
+        assertThat(stats.churnByMonth().values().stream().reduce(Churn::plus).get(),
+                equalTo(new Churn(stats.linesAdded(), stats.linesRemoved())));
+    }
+
+    @Test
+    void calculateCouplingStatistics_releaseTag_success() throws IOException {
+        CouplingOptions options = new CouplingOptionsBuilder().maxFilesPerCommit(20).maxPairs(50).build();
+        CouplingStatistics stats = testee.calculateCouplingStatistics("v31.1", options);
+
+        assertThat(stats.commitCount(), greaterThan(0));
+        assertThat(stats.commitCount() + stats.commitsSkipped(), lessThan(5752));
+        assertThat(stats.pairs().size(), equalTo(50));
+        assertThat(stats.pairCount(), greaterThanOrEqualTo(50));
+        assertThat(stats.pairs().get(0).commitCount(), greaterThanOrEqualTo(stats.pairs().get(49).commitCount()));
+        assertThat(stats.pairs().get(0).commitCount(), lessThanOrEqualTo(stats.pairs().get(0).commitCount1()));
+        assertValidChart(testee.generateCouplingReport(stats));
+    }
+
+    @Test
+    void generateCompactHistoryReport_releaseTag_success() throws IOException {
+        HistoryStatistics stats = testee.calculateHistoryStatistics("v31.1", new HistoryOptionsBuilder().build());
+
+        Path file = testee.generateCompactHistoryReport(stats);
+        assertValidChart(file);
+    }
+
+    @Test
+    void calculateHistoryStatistics_indexedTwice_sameResult() throws IOException {
+        HistoryStatistics stats1 = testee.calculateHistoryStatistics("v31.1");
+        HistoryStatistics stats2;
+        try (GitStats other = new GitStats(Paths.get("src/test/resources/it/guava.git"), Paths.get("target/reports"))) {
+            stats2 = other.calculateHistoryStatistics("v31.1");
+        }
+
+        assertThat(Files.exists(Paths.get("target/reports/history.idx")), equalTo(true));
+        assertThat(stats2, equalTo(stats1));
+    }
+
+    @Test
+    void getGlobalCacheStatistics_configuredCache_success() throws IOException {
+        GitStatsConfig config = new GitStatsConfigBuilder() //
+                .packedGitWindowSize(64 * 1024) //
+                .deltaBaseCacheLimit(64 * 1024 * 1024) //
+                .packedGitMmap(false) //
+                .streamFileThreshold(16 * 1024 * 1024) //
+                .build();
+        try (GitStats other = new GitStats(Paths.get("src/test/resources/it/guava.git"), Paths.get("target/cached"), config)) {
+            other.calculateCommitStatistics("822125f9ee7a71c830f1383e9e5a8663414d8f48");
+            CacheStatistics stats = GitStats.getGlobalCacheStatistics();
+
+            assertThat(stats.hitCount(), greaterThan(0L));
+            assertThat(stats.openFileCount(), greaterThan(0L));
+        }
+    }
+
+    @Test
+    void generateMetricsReport_inMemoryMetrics_success() throws IOException {
+        InMemoryMetrics metrics = new InMemoryMetrics();
+        GitStatsConfig config = new GitStatsConfigBuilder().metrics(metrics).build();
+        try (GitStats other = new GitStats(Paths.get("src/test/resources/it/guava.git"), Paths.get("target/metrics"), config)) {
+            HistoryStatistics stats = other.calculateHistoryStatistics("v31.1");
+            other.generateHistoryReport(stats);
+            MetricsSnapshot snapshot = metrics.snapshot();
+
+            assertThat(snapshot.phases().get("calculateHistoryStatistics.aggregate").counters().get("commits"), equalTo(5752L));
+            assertThat(snapshot.phases().get("generateHistoryReport").invocations(), equalTo(1L));
+            assertThat(snapshot.phases().get("ChartGenerator.generateLinesChart").invocations(), equalTo(2L));
+
+            Path file = other.generateMetricsReport(snapshot);
+            assertThat(Files.readString(file), startsWith("{"));
+        }
+    }
+
     private void assertValidCharts(List<Path> files, int count) throws IOException {
         assertThat(files.size(), equalTo(count));
         for(var file: files) {
@@ -107,6 +444,110 @@ class GitStatsTest {
         assertThat(fileContent, startsWith("<!doctype html>"));
     }
 
+    // lines of all regular text files, like 'git ls-tree -r' piped through 'wc -l' (plus unterminated last lines)
+    private static int countLines(String revision) throws IOException {
+        return lineCountByFile(revision).values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    // regular files that are not binary and not empty
+    private static Map<String, Integer> lineCountByFile(String revision) throws IOException {
+        try (Repository repo = Git.open(new File("src/test/resources/it/guava.git")).getRepository(); //
+                RevWalk walk = new RevWalk(repo); //
+                TreeWalk treeWalk = new TreeWalk(repo)) {
+            treeWalk.addTree(walk.parseCommit(repo.resolve(revision)).getTree());
+            treeWalk.setRecursive(true);
+            Map<String, Integer> result = new HashMap<>();
+            while (treeWalk.next()) {
+                FileMode mode = treeWalk.getFileMode(0);
+                if (mode == FileMode.REGULAR_FILE || mode == FileMode.EXECUTABLE_FILE) {
+                    byte[] bytes = repo.open(treeWalk.getObjectId(0)).getBytes();
+                    int lineCount = RawText.isBinary(bytes) ? 0 : new RawText(bytes).size();
+                    if (lineCount > 0) {
+                        result.put(treeWalk.getPathString(), lineCount);
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
+    // distinct authors per month (UTC) of all commits reachable from the revision, like 'git log --format=%an%ae'
+    private static Map<YearMonth, Long> authorCountByMonth(String revision) throws Exception {
+        Map<YearMonth, Set<User>> authors = new TreeMap<>();
+        try (Git git = Git.open(new File("src/test/resources/it/guava.git"))) {
+            for (RevCommit commit : git.log().add(git.getRepository().resolve(revision)).call()) {
+                YearMonth month = YearMonth.from(Instant.ofEpochSecond(commit.getCommitTime()).atZone(UTC));
+                authors.computeIfAbsent(month, k -> new HashSet<>()).add(new UserBuilder() //
+                        .name(commit.getAuthorIdent().getName()) //
+                        .email(commit.getAuthorIdent().getEmailAddress()) //
+                        .build());
+            }
+        }
+        Map<YearMonth, Long> result = new TreeMap<>();
+        authors.forEach((month, users) -> result.put(month, (long) users.size()));
+        return result;
+    }
+
+    // every non-merge commit diffed one after the other against its parent, including files with unchanged content
+    private static Map<String, Churn> churnByCommit(String revision) throws IOException {
+        try (Repository repo = Git.open(new File("src/test/resources/it/guava.git")).getRepository(); //
+                RevWalk walk = new RevWalk(repo); //
+                DiffFormatter formatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
+            formatter.setRepository(repo);
+            formatter.setDetectRenames(true);
+            walk.markStart(walk.parseCommit(repo.resolve(revision)));
+            Map<String, Churn> result = new HashMap<>();
+            for (RevCommit commit : walk) {
+                if (commit.getParentCount() > 1) {
+                    continue;
+                }
+                RevTree oldTree = commit.getParentCount() == 0 ? null : walk.parseCommit(commit.getParent(0)).getTree();
+                Churn churn = new Churn(0, 0);
+                for (DiffEntry entry : formatter.scan(oldTree, commit.getTree())) {
+                    for (Edit edit : formatter.toFileHeader(entry).toEditList()) {
+                        churn = churn.plus(new Churn(edit.getLengthB(), edit.getLengthA()));
+                    }
+                }
+                result.put(commit.getName(), churn);
+            }
+            return result;
+        }
+    }
+
+    private static Set<String> commitHashes(HistoryStatistics stats) {
+        assertThat(stats.commits().size(), equalTo(stats.commitCount()));
+        return stats.commits().stream().map(CommitInfo::hash).collect(toSet());
+    }
+
+    // non-merge commits changing the path compared to their parent, like 'git log --no-merges --full-history'
+    private static Set<String> findCommits(String revision, Path path) throws IOException {
+        try (Repository repo = Git.open(new File("src/test/resources/it/guava.git")).getRepository(); //
+                RevWalk walk = new RevWalk(repo)) {
+            TreeFilter filter = AndTreeFilter.create(PathFilter.create(path.toString()), TreeFilter.ANY_DIFF);
+            walk.markStart(walk.parseCommit(repo.resolve(revision)));
+            Set<String> commits = new HashSet<>();
+            for (RevCommit commit : walk) {
+                if (commit.getParentCount() > 1) {
+                    continue;
+                }
+                try (TreeWalk treeWalk = new TreeWalk(repo)) {
+                    if (commit.getParentCount() == 0) {
+                        treeWalk.addTree(new EmptyTreeIterator());
+                    } else {
+                        treeWalk.addTree(walk.parseCommit(commit.getParent(0)).getTree());
+                    }
+                    treeWalk.addTree(commit.getTree());
+                    treeWalk.setRecursive(true);
+                    treeWalk.setFilter(filter);
+                    if (treeWalk.next()) {
+                        commits.add(commit.getName());
+                    }
+                }
+            }
+            return commits;
+        }
+    }
+
     private static Collector<Long, ?, Integer> toSum() {
         return summingInt(Long::intValue);
     }
@@ -0,0 +1,87 @@
+package com.github.phoswald.git.stats;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class HistoryAggregatorTest {
+
+    private final UserDictionary users = new UserDictionary();
+    private final int alice = users.id(new UserBuilder().name("Alice").email("alice@example.com").build());
+    private final int bob = users.id(new UserBuilder().name("Bob").email("bob@example.com").build());
+
+    @Test
+    void epochMonth_everyDay_sameAsLocalDate() {
+        // 1600-01-01 until 2400-12-31, including the 100 and 400 year leap rules and pre-1970 dates
+        for (long epochDay = LocalDate.of(1600, 1, 1).toEpochDay(); epochDay <= LocalDate.of(2400, 12, 31)
+                .toEpochDay(); epochDay++) {
+            LocalDate date = LocalDate.ofEpochDay(epochDay);
+            int expected = date.getYear() * 12 + date.getMonthValue() - 1;
+            if (HistoryAggregator.epochMonth((int) epochDay) != expected) {
+                assertThat(date.toString(), HistoryAggregator.epochMonth((int) epochDay), equalTo(expected));
+            }
+        }
+    }
+
+    @Test
+    void build_datesBefore1970_counted() {
+        HistoryAggregator testee = new HistoryAggregator(users);
+        testee.add(commitTime(1969, 12, 31), alice);
+        testee.add(commitTime(1969, 12, 1), bob);
+        testee.add(commitTime(1960, 2, 29), alice);
+        testee.add(commitTime(1970, 1, 1), alice);
+        HistoryStatistics stats = testee.build(null);
+
+        assertThat(stats.commitCount(), equalTo(4));
+        assertThat(stats.commitCountByYear(), equalTo(Map.of(Year.of(1960), 1L, Year.of(1969), 2L, Year.of(1970), 1L)));
+        assertThat(stats.commitCountByMonth(), equalTo(Map.of(YearMonth.of(1960, 2), 1L, YearMonth.of(1969, 12), 2L,
+                YearMonth.of(1970, 1), 1L)));
+        assertThat(stats.commitCountByDate().firstKey(), equalTo(LocalDate.of(1960, 2, 29)));
+        assertThat(stats.authorCountByMonth().get(YearMonth.of(1969, 12)), equalTo(2L));
+    }
+
+    @Test
+    void build_severalCommitsPerMonth_authorsCountedOnce() {
+        HistoryAggregator testee = new HistoryAggregator(users);
+        testee.add(commitTime(2020, 1, 1), alice);
+        testee.add(commitTime(2020, 1, 31), alice);
+        testee.add(commitTime(2020, 1, 15), bob);
+        testee.add(commitTime(2020, 2, 1), bob);
+        testee.add(commitTime(2020, 2, 29), bob);
+        testee.add(commitTime(2021, 1, 1), alice);
+        HistoryStatistics stats = testee.build(null);
+
+        assertThat(stats.authorCountByMonth(), equalTo(Map.of(YearMonth.of(2020, 1), 2L, YearMonth.of(2020, 2), 1L,
+                YearMonth.of(2021, 1), 1L)));
+        assertThat(stats.authorCountByMonth(),
+                equalTo(HistoryAggregator.authorCountByMonth(stats.commitCountByAuthorAndMonth())));
+    }
+
+    @Test
+    void addAll_splitCommits_sameAsSinglePass() {
+        HistoryAggregator single = new HistoryAggregator(users);
+        HistoryAggregator first = new HistoryAggregator(users);
+        HistoryAggregator second = new HistoryAggregator(users);
+        for (int i = 0; i < 1000; i++) {
+            int commitTime = commitTime(2000, 1, 1) + i * 86400 * 3 + i;
+            int author = i % 3 == 0 ? bob : alice;
+            single.add(commitTime, author);
+            (i < 400 ? first : second).add(commitTime, author);
+        }
+        first.addAll(second);
+
+        assertThat(first.commitCount(), equalTo(1000));
+        assertThat(first.build(null), equalTo(single.build(null)));
+    }
+
+    private static int commitTime(int year, int month, int day) {
+        return (int) LocalDate.of(year, month, day).atTime(12, 0).toEpochSecond(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.phoswald.git.stats;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HistoryIndexTest {
+
+    @TempDir
+    private Path repoPath;
+
+    private Git git;
+
+    @BeforeEach
+    void open() throws GitAPIException {
+        git = Git.init().setDirectory(repoPath.toFile()).setInitialBranch("main").call();
+    }
+
+    @AfterEach
+    void close() {
+        git.close();
+    }
+
+    @Test
+    void update_moreStartsThanThreads_sameAsSequential() throws Exception {
+        List<ObjectId> starts = new ArrayList<>();
+        commit("initial");
+        for (int branch = 0; branch < 12; branch++) {
+            git.branchCreate().setName("side" + branch).call();
+            git.checkout().setName("side" + branch).call();
+            for (int i = 0; i < 3; i++) {
+                starts.add(commit("side" + branch + "-" + i));
+            }
+            git.checkout().setName("main").call();
+            commit("main" + branch);
+            if (branch % 3 == 0) {
+                git.merge().include(starts.get(starts.size() - 1)).setMessage("Merge side" + branch).call();
+            }
+        }
+        starts.add(0, git.getRepository().resolve("main"));
+
+        HistoryIndex expected = new HistoryIndex();
+        try (RevWalk walk = new RevWalk(git.getRepository())) {
+            for (ObjectId start : starts) {
+                expected.update(walk, walk.parseCommit(start));
+            }
+        }
+        for (int run = 0; run < 20; run++) {
+            HistoryIndex testee = new HistoryIndex();
+            int added = testee.update(git.getRepository(), starts, 2);
+
+            assertThat(added, equalTo(expected.size()));
+            assertThat(reachableIds(testee), equalTo(reachableIds(expected)));
+        }
+    }
+
+    // the ids reachable from every indexed commit, which covers the parents
+    private static Map<ObjectId, Set<ObjectId>> reachableIds(HistoryIndex index) {
+        Map<ObjectId, Set<ObjectId>> result = new HashMap<>();
+        for (int position = 0; position < index.size(); position++) {
+            Set<ObjectId> ids = new HashSet<>();
+            index.reachable(position).stream().forEach(reachable -> ids.add(index.id(reachable)));
+            result.put(index.id(position), ids);
+        }
+        return result;
+    }
+
+    // adds a new file, so merges never conflict
+    private RevCommit commit(String content) throws IOException, GitAPIException {
+        Files.writeString(repoPath.resolve(content + ".txt"), content, UTF_8);
+        git.add().addFilepattern(content + ".txt").call();
+        PersonIdent ident = new PersonIdent("Alice", "alice@example.com");
+        return git.commit().setAuthor(ident).setCommitter(ident).setMessage(content).call();
+    }
+}
@@ -0,0 +1,82 @@
+package com.github.phoswald.git.stats;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class IntCounterTest {
+
+    private final IntCounter testee = new IntCounter();
+
+    @Test
+    void add_manyKeys_growsAndKeepsCounts() {
+        Map<Integer, Long> expected = new HashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            int key = i * 7919 - 5_000_000; // spread, about half of them negative
+            testee.add(key, i % 3 + 1);
+            testee.add(key, 1);
+            expected.put(key, (long) (i % 3 + 2));
+        }
+
+        assertThat(testee.size(), equalTo(10_000));
+        assertThat(toMap(testee), equalTo(expected));
+        expected.forEach((key, count) -> assertThat(testee.get(key), equalTo(count)));
+        assertThat(testee.get(123), equalTo(0L));
+    }
+
+    @Test
+    void add_rehashOnInsert_countKept() {
+        for (int key = 0; key < 8; key++) {
+            testee.add(key, 1);
+        }
+        testee.add(8, 5); // the ninth key exceeds half of the 16 slots and triggers the rehash
+
+        assertThat(testee.size(), equalTo(9));
+        assertThat(testee.get(8), equalTo(5L));
+        assertThat(testee.get(0), equalTo(1L));
+    }
+
+    @Test
+    void add_negativeAndZeroKeys_distinct() {
+        testee.add(-1, 2);
+        testee.add(0, 3);
+        testee.add(Integer.MIN_VALUE, 4);
+        testee.add(-1, 1);
+
+        assertThat(toMap(testee), equalTo(Map.of(-1, 3L, 0, 3L, Integer.MIN_VALUE, 4L)));
+    }
+
+    @Test
+    void add_nonPositiveCount_ignored() {
+        testee.add(1, 0);
+        testee.add(2, -1);
+
+        assertThat(testee.size(), equalTo(0));
+        assertThat(testee.get(1), equalTo(0L));
+    }
+
+    @Test
+    void addAll_overlappingKeys_summed() {
+        IntCounter other = new IntCounter();
+        for (int key = -50; key < 50; key++) {
+            testee.add(key, 1);
+            other.add(key + 25, 2);
+        }
+        testee.addAll(other);
+
+        assertThat(testee.size(), equalTo(125));
+        assertThat(testee.get(-50), equalTo(1L));
+        assertThat(testee.get(0), equalTo(3L));
+        assertThat(testee.get(74), equalTo(2L));
+    }
+
+    private static Map<Integer, Long> toMap(IntCounter counter) {
+        Map<Integer, Long> result = new HashMap<>();
+        counter.forEach(result::put);
+        return result;
+    }
+}
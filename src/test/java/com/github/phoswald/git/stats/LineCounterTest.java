@@ -0,0 +1,106 @@
+package com.github.phoswald.git.stats;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.github.phoswald.git.stats.metrics.MetricsListener;
+import com.github.phoswald.git.stats.metrics.Phase;
+
+class LineCounterTest {
+
+    @TempDir
+    private Path repoPath;
+
+    private Git git;
+    private LineCounter testee;
+
+    @BeforeEach
+    void open() throws GitAPIException {
+        git = Git.init().setBare(true).setDirectory(repoPath.toFile()).call();
+        testee = new LineCounter(git.getRepository(), 2);
+    }
+
+    @AfterEach
+    void close() {
+        testee.close();
+        git.close();
+        new WindowCacheConfig().install();
+    }
+
+    @Test
+    void countLines_lastLineWithoutNewline_counted() throws IOException {
+        assertThat(countLines("one\ntwo\nthree"), equalTo(3));
+        assertThat(countLines("one\ntwo\nthree\n"), equalTo(3));
+        assertThat(countLines("\n\n"), equalTo(2));
+    }
+
+    @Test
+    void countLines_emptyBlob_zero() throws IOException {
+        assertThat(countLines(""), equalTo(0));
+    }
+
+    @Test
+    void countLines_binaryBlob_zero() throws IOException {
+        assertThat(countLines("line\n\0binary\n"), equalTo(0));
+    }
+
+    @Test
+    void countLines_largeBlob_streamed() throws IOException {
+        WindowCacheConfig config = new WindowCacheConfig();
+        config.setStreamFileThreshold(64 * 1024);
+        config.install();
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            content.append("line ").append(i).append('\n');
+        }
+        content.append("last");
+        ObjectId blob = insert(content.toString());
+
+        assertThat(git.getRepository().open(blob).isLarge(), equalTo(true));
+        assertThat(countLines(List.of(blob)), equalTo(100_001));
+    }
+
+    @Test
+    void countLines_manyBlobs_summedAndMemoized() throws IOException {
+        List<ObjectId> blobs = List.of(insert("a\n"), insert("b\nc\n"), insert("a\n"), insert("d\ne\nf"));
+
+        assertThat(countLines(blobs), equalTo(7));
+        assertThat(countLines(blobs), equalTo(7));
+    }
+
+    private int countLines(String content) throws IOException {
+        return countLines(List.of(insert(content)));
+    }
+
+    private int countLines(List<ObjectId> blobs) throws IOException {
+        try (Phase phase = Phase.start(MetricsListener.NONE, "test")) {
+            return testee.countLines(blobs, phase);
+        }
+    }
+
+    private ObjectId insert(String content) throws IOException {
+        Repository repo = git.getRepository();
+        try (ObjectInserter inserter = repo.newObjectInserter()) {
+            ObjectId blob = inserter.insert(Constants.OBJ_BLOB, content.getBytes(UTF_8));
+            inserter.flush();
+            return blob;
+        }
+    }
+}
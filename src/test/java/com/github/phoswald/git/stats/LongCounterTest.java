@@ -0,0 +1,87 @@
+package com.github.phoswald.git.stats;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class LongCounterTest {
+
+    private final LongCounter testee = new LongCounter();
+
+    @Test
+    void add_manyPairs_growsAndKeepsCounts() {
+        Map<Long, Long> expected = new HashMap<>();
+        for (int id1 = 0; id1 < 100; id1++) {
+            for (int id2 = id1 + 1; id2 < 100; id2++) {
+                long key = (long) id1 << 32 | id2; // packed like the pairs of the coupling calculator
+                testee.add(key, id2 % 3 + 1);
+                testee.add(key, 1);
+                expected.put(key, (long) (id2 % 3 + 2));
+            }
+        }
+
+        assertThat(testee.size(), equalTo(4950));
+        assertThat(toMap(testee), equalTo(expected));
+        expected.forEach((key, count) -> assertThat(testee.get(key), equalTo(count)));
+        assertThat(testee.get(5L << 32 | 5), equalTo(0L));
+    }
+
+    @Test
+    void add_rehashOnInsert_countKept() {
+        for (long key = 0; key < 8; key++) {
+            testee.add(key, 1);
+        }
+        testee.add(8, 5); // the ninth key exceeds half of the 16 slots and triggers the rehash
+
+        assertThat(testee.size(), equalTo(9));
+        assertThat(testee.get(8), equalTo(5L));
+        assertThat(testee.get(0), equalTo(1L));
+    }
+
+    @Test
+    void add_sameLowerBits_distinct() {
+        testee.add(1L << 32 | 7, 2);
+        testee.add(2L << 32 | 7, 3);
+        testee.add(7, 4);
+        testee.add(-1L << 32 | 7, 5);
+        testee.add(Long.MIN_VALUE, 6);
+        testee.add(1L << 32 | 7, 1);
+
+        assertThat(toMap(testee), equalTo(Map.of(1L << 32 | 7, 3L, 2L << 32 | 7, 3L, 7L, 4L, -1L << 32 | 7, 5L,
+                Long.MIN_VALUE, 6L)));
+    }
+
+    @Test
+    void add_nonPositiveCount_ignored() {
+        testee.add(1, 0);
+        testee.add(2, -1);
+
+        assertThat(testee.size(), equalTo(0));
+        assertThat(testee.get(1), equalTo(0L));
+    }
+
+    @Test
+    void addAll_overlappingKeys_summed() {
+        LongCounter other = new LongCounter();
+        for (long key = -50; key < 50; key++) {
+            testee.add(key << 32, 1);
+            other.add(key + 25 << 32, 2);
+        }
+        testee.addAll(other);
+
+        assertThat(testee.size(), equalTo(125));
+        assertThat(testee.get(-50L << 32), equalTo(1L));
+        assertThat(testee.get(0), equalTo(3L));
+        assertThat(testee.get(74L << 32), equalTo(2L));
+    }
+
+    private static Map<Long, Long> toMap(LongCounter counter) {
+        Map<Long, Long> result = new HashMap<>();
+        counter.forEach(result::put);
+        return result;
+    }
+}
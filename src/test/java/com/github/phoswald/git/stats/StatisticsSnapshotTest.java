@@ -0,0 +1,111 @@
+package com.github.phoswald.git.stats;
+
+import static java.util.Comparator.comparing;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+class StatisticsSnapshotTest {
+
+    private final User alice = new UserBuilder().name("Alice").email("alice@example.com").build();
+    private final User bob = new UserBuilder().name("Bob").email(null).build();
+    private final CommitInfo commit = new CommitInfoBuilder() //
+            .hash("822125f9ee7a71c830f1383e9e5a8663414d8f48") //
+            .timestamp(Instant.parse("2022-10-27T17:33:37Z")) //
+            .author(alice) //
+            .message("Bump deps.") //
+            .build();
+
+    @Test
+    void write_allStatistics_sameAfterRead() throws IOException {
+        StatisticsSnapshot snapshot = new StatisticsSnapshotBuilder() //
+                .history(new HistoryStatisticsBuilder() //
+                        .commitCount(3) //
+                        .commitCountByAuthor(users(alice, 2L, bob, 1L)) //
+                        .commitCountByDate(new TreeMap<>(Map.of( //
+                                LocalDate.of(1969, 12, 31), 1L, LocalDate.of(2022, 10, 27), 2L))) //
+                        .commitCountByYear(new TreeMap<>(Map.of(Year.of(1969), 1L, Year.of(2022), 2L))) //
+                        .commitCountByMonth(new TreeMap<>(Map.of( //
+                                YearMonth.of(1969, 12), 1L, YearMonth.of(2022, 10), 2L))) //
+                        .commitCountByAuthorAndYear(users(alice, new TreeMap<>(Map.of(Year.of(2022), 2L)))) //
+                        .commitCountByAuthorAndMonth(users(bob, new TreeMap<>(Map.of(YearMonth.of(1969, 12), 1L)))) //
+                        .authorCountByMonth(new TreeMap<>(Map.of(YearMonth.of(1969, 12), 1L))) //
+                        .commits(List.of(commit)) //
+                        .build()) //
+                .commit(new CommitStatisticsBuilder() //
+                        .repo("repo") //
+                        .revision("HEAD") //
+                        .commit(commit) //
+                        .fileCount(3239) //
+                        .lineCount(512345) //
+                        .build()) //
+                .blame(new BlameStatisticsBuilder() //
+                        .repo("repo") //
+                        .revision("HEAD") //
+                        .lineCount(46) //
+                        .lineCountByAuthor(users(alice, 40L, bob, 6L)) //
+                        .lineCountByDate(new TreeMap<>(Map.of(LocalDate.of(2022, 10, 27), 46L))) //
+                        .lineCountErrorByAuthor(users(alice, 4L, bob, 2L)) //
+                        .build()) //
+                .build();
+
+        Path file = Paths.get("target/snapshots/all.bin");
+        snapshot.write(file);
+
+        assertThat(StatisticsSnapshot.read(file), equalTo(snapshot));
+    }
+
+    @Test
+    void write_authorOnlyInErrors_sameAfterRead() throws IOException {
+        User carol = new UserBuilder().name("Carol").email("carol@example.com").build();
+        StatisticsSnapshot snapshot = new StatisticsSnapshotBuilder() //
+                .blame(new BlameStatisticsBuilder() //
+                        .repo("repo") //
+                        .revision("HEAD") //
+                        .lineCount(46) //
+                        .lineCountByAuthor(users(alice, 46L)) //
+                        .lineCountByDate(new TreeMap<>(Map.of(LocalDate.of(2022, 10, 27), 46L))) //
+                        .lineCountErrorByAuthor(users(alice, 4L, carol, 3L)) //
+                        .lineCountErrorByDate(new TreeMap<>(Map.of(LocalDate.of(2022, 10, 27), 5L))) //
+                        .build()) //
+                .build();
+
+        Path file = Paths.get("target/snapshots/errors.bin");
+        snapshot.write(file);
+
+        assertThat(StatisticsSnapshot.read(file), equalTo(snapshot));
+    }
+
+    @Test
+    void read_otherFile_exception() throws IOException {
+        Path file = Paths.get("target/snapshots/other.bin");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, "not a snapshot");
+
+        assertThrows(IOException.class, () -> StatisticsSnapshot.read(file));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> SortedMap<User, V> users(Object... entries) {
+        SortedMap<User, V> map = new TreeMap<>(comparing(User::toString));
+        for (int i = 0; i < entries.length; i += 2) {
+            map.put((User) entries[i], (V) entries[i + 1]);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,38 @@
+package com.github.phoswald.git.stats;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import org.eclipse.jgit.lib.PersonIdent;
+import org.junit.jupiter.api.Test;
+
+class UserDictionaryTest {
+
+    private final UserDictionary testee = new UserDictionary();
+
+    @Test
+    void id_distinctUsers_assignedInOrder() {
+        User alice = new UserBuilder().name("Alice").email("alice@example.com").build();
+        User bob = new UserBuilder().name("Bob").email("bob@example.com").build();
+        User aliceAtWork = new UserBuilder().name("Alice").email("alice@work.example.com").build();
+
+        assertThat(testee.id(alice), equalTo(0));
+        assertThat(testee.id(bob), equalTo(1));
+        assertThat(testee.id(aliceAtWork), equalTo(2));
+        assertThat(testee.id(alice), equalTo(0));
+        assertThat(testee.id(new PersonIdent("Bob", "bob@example.com")), equalTo(1));
+        assertThat(testee.size(), equalTo(3));
+        assertThat(testee.user(2), equalTo(aliceAtWork));
+    }
+
+    @Test
+    void find_unknownUser_notAdded() {
+        User alice = new UserBuilder().name("Alice").email("alice@example.com").build();
+        User bob = new UserBuilder().name("Bob").email("bob@example.com").build();
+        testee.id(alice);
+
+        assertThat(testee.find(alice), equalTo(0));
+        assertThat(testee.find(bob), equalTo(-1));
+        assertThat(testee.size(), equalTo(1));
+    }
+}
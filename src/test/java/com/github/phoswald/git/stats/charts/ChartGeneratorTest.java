@@ -4,6 +4,7 @@ import static com.github.phoswald.git.reports.Dataset.dataset;
 import static com.github.phoswald.git.reports.Sample.sample;
 import static com.github.phoswald.git.reports.Sequence.sequence;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.startsWith;
 
 import java.io.IOException;
@@ -52,6 +53,30 @@ class ChartGeneratorTest {
         var seq2 = sequence("Series B", sample(1, 5), sample(2, 6), sample(3, 4), sample(4, 3), sample(5, 1));
         Path file = testee.generateLinesChart("sample-lines-chart", dataset(null, seq1, seq2));
         assertValidChart(file);
+        assertThat(Files.readString(file), containsString("\"y\":[5,6,4,3,1]"));
+    }
+
+    @Test
+    void generateHeatmapChart() throws IOException {
+        var seq1 = sequence("File A", sample("File B", 3), sample("File C", 1));
+        var seq2 = sequence("File B", sample("File A", 3));
+        Path file = testee.generateHeatmapChart("sample-heatmap-chart", dataset(null, seq1, seq2));
+        assertValidChart(file);
+        assertThat(Files.readString(file), containsString("\"z\":[[0,3,1],[3,0,0]]"));
+        assertThat(Files.readString(file), containsString("\"y\":[\"File A\",\"File B\"]"));
+    }
+
+    @Test
+    void generatePage() throws IOException {
+        var seq1 = sequence("Series A", sample(1, 1), sample(2, 2), sample(3, 4), sample(4, 8), sample(5, 16));
+        var seq2 = sequence("Series B", sample(1, 5), sample(2, 6), sample(3, 4), sample(4, 3), sample(5, 1.5));
+        Path file = testee.newPage("sample-page") //
+                .addPieChart("Pie Chart", sequence(null, sample("Value A", 10), sample("Value B", 20))) //
+                .addLinesChart("Lines Chart", dataset(null, seq1, seq2)) //
+                .generate();
+        assertValidChart(file);
+        assertThat(Files.readString(file), containsString("var labels = [[\"Value A\",\"Value B\"],[\"1.0\",\"2.0\",\"3.0\",\"4.0\",\"5.0\"]];"));
+        assertThat(Files.readString(file), containsString("\"values\":[5,6,4,3,1.5]"));
     }
 
     private void assertValidChart(Path file) throws IOException {
@@ -0,0 +1,96 @@
+package com.github.phoswald.git.stats.server;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.startsWith;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class StatsServerTest {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private StatsServer testee;
+
+    @BeforeEach
+    void start() throws IOException {
+        testee = new StatsServer(new InetSocketAddress("localhost", 0), Paths.get("target/server"), 2, 1, 10_000_000);
+        testee.register("guava", Paths.get("src/test/resources/it/guava.git"));
+        testee.register("guava2", Paths.get("src/test/resources/it/guava.git"));
+        testee.start();
+    }
+
+    @AfterEach
+    void stop() {
+        testee.close();
+    }
+
+    @Test
+    void get_commitTwice_cached() throws IOException, InterruptedException {
+        HttpResponse<String> response1 = get("/guava/commit?revision=v31.1");
+        HttpResponse<String> response2 = get("/guava/commit?revision=v31.1");
+
+        assertThat(response1.statusCode(), equalTo(200));
+        assertThat(response1.body(), startsWith("{"));
+        assertThat(response2.body(), equalTo(response1.body()));
+        assertThat(testee.getCacheHitCount(), equalTo(1L));
+        assertThat(testee.getCacheMissCount(), equalTo(1L));
+    }
+
+    @Test
+    void get_otherRepo_leastRecentlyUsedClosed() throws IOException, InterruptedException {
+        HttpResponse<String> response1 = get("/guava/commit?revision=v31.1");
+        HttpResponse<String> response2 = get("/guava2/commit?revision=v31.1");
+        HttpResponse<String> response3 = get("/guava/commit?revision=v31.1%5E");
+
+        assertThat(response1.statusCode(), equalTo(200));
+        assertThat(response2.body(), equalTo(response1.body()));
+        assertThat(response3.statusCode(), equalTo(200));
+        assertThat(testee.getOpenRepoCount(), equalTo(1));
+    }
+
+    @Test
+    void get_unknownRepo_notFound() throws IOException, InterruptedException {
+        HttpResponse<String> response = get("/other/history");
+
+        assertThat(response.statusCode(), equalTo(404));
+    }
+
+    @Test
+    void get_malformedRevision_badRequest() throws IOException, InterruptedException {
+        HttpResponse<String> response = get("/guava/commit?revision=HEAD%5E%7Bfoo");
+
+        assertThat(response.statusCode(), equalTo(400));
+        assertThat(response.body(), startsWith("{\"error\":"));
+    }
+
+    @Test
+    void get_unknownRevision_notFound() throws IOException, InterruptedException {
+        HttpResponse<String> response = get("/guava/history?revision=no-such-branch");
+
+        assertThat(response.statusCode(), equalTo(404));
+        assertThat(response.body(), startsWith("{\"error\":"));
+    }
+
+    @Test
+    void get_unknownFile_notFound() throws IOException, InterruptedException {
+        HttpResponse<String> response = get("/guava/blame?revision=v31.1&file=no/such/File.java");
+
+        assertThat(response.statusCode(), equalTo(404));
+        assertThat(response.body(), startsWith("{\"error\":"));
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        URI uri = URI.create("http://localhost:" + testee.getPort() + path);
+        return client.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString());
+    }
+}